@@ -3,6 +3,14 @@ package pro.dracarys.CommonLib;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 import pro.dracarys.CommonLib.apimanager.APIManager;
+import pro.dracarys.CommonLib.file.ResolutionCache;
+import pro.dracarys.CommonLib.particles.EffectRegistry;
+import pro.dracarys.CommonLib.particles.PacketRateLimiter;
+import pro.dracarys.CommonLib.particles.ParticleCoalescer;
+import pro.dracarys.CommonLib.particles.ParticleExecutor;
+import pro.dracarys.CommonLib.particles.ParticleScheduler;
+import pro.dracarys.CommonLib.particles.PlayerIndex;
+import pro.dracarys.CommonLib.particles.ShapePipeline;
 
 public class CommonLib extends JavaPlugin {
 
@@ -21,7 +29,21 @@ public class CommonLib extends JavaPlugin {
 
         //Initialize this API of the plugin got loaded
         checkServerVersion();
+        ResolutionCache.load(getDataFolder());
         APIManager.initAPI(CommonLibAPI.class);
+        getCommand("commonlib").setExecutor(new CommonLibCommand());
+        PlayerIndex.getInstance().enable(this);
+        ParticleScheduler.getInstance().enable(this);
+        PacketRateLimiter.getInstance().enable(this);
+        ParticleCoalescer.getInstance().enable(this);
+        EffectRegistry.getInstance().enable(this);
+    }
+
+    @Override
+    public void onDisable() {
+        ParticleExecutor.shutdown();
+        ShapePipeline.shutdown();
+        ResolutionCache.save();
     }
 
     public static CommonLib getInstance(){
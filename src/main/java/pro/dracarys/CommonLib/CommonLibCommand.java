@@ -0,0 +1,66 @@
+package pro.dracarys.CommonLib;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import pro.dracarys.CommonLib.particles.ReflectionProfiler;
+
+import java.util.List;
+import java.util.Map;
+
+public class CommonLibCommand implements CommandExecutor {
+
+    private static final int REPORT_SIZE = 10;
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) {
+            sender.sendMessage(ChatColor.GOLD + "CommonLib " + CommonLib.getInstance().getDescription().getVersion());
+            sender.sendMessage(ChatColor.GRAY + "/" + label + " reflect [on|off|reset]");
+            return true;
+        }
+        if (args[0].equalsIgnoreCase("reflect")) {
+            if (args.length > 1) {
+                if (args[1].equalsIgnoreCase("on")) {
+                    ReflectionProfiler.setEnabled(true);
+                    sender.sendMessage(ChatColor.GREEN + "Reflection profiling enabled.");
+                } else if (args[1].equalsIgnoreCase("off")) {
+                    ReflectionProfiler.setEnabled(false);
+                    sender.sendMessage(ChatColor.YELLOW + "Reflection profiling disabled.");
+                } else if (args[1].equalsIgnoreCase("reset")) {
+                    ReflectionProfiler.reset();
+                    sender.sendMessage(ChatColor.YELLOW + "Reflection profiling data cleared.");
+                } else {
+                    sender.sendMessage(ChatColor.RED + "Usage: /" + label + " reflect [on|off|reset]");
+                }
+                return true;
+            }
+            sendReflectionReport(sender);
+            return true;
+        }
+        sender.sendMessage(ChatColor.RED + "Unknown sub-command, use /" + label + " for help.");
+        return true;
+    }
+
+    private void sendReflectionReport(CommandSender sender) {
+        sender.sendMessage(ChatColor.GOLD + "Reflection profile " + ChatColor.GRAY + "(" + (ReflectionProfiler.isEnabled() ? "recording" : "paused") + ")");
+        List<Map.Entry<String, ReflectionProfiler.MemberStats>> slowest = ReflectionProfiler.getSlowest(REPORT_SIZE);
+        if (slowest.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "No reflective calls recorded, use /commonlib reflect on");
+        }
+        for (Map.Entry<String, ReflectionProfiler.MemberStats> entry : slowest) {
+            ReflectionProfiler.MemberStats stats = entry.getValue();
+            sender.sendMessage(ChatColor.YELLOW + entry.getKey() + ChatColor.GRAY + " calls: " + ChatColor.WHITE + stats.getInvocations()
+                    + ChatColor.GRAY + " total: " + ChatColor.WHITE + String.format("%.2fms", stats.getTotalNanos() / 1_000_000D)
+                    + ChatColor.GRAY + " avg: " + ChatColor.WHITE + String.format("%.0fns", stats.getAverageNanos()));
+        }
+        for (Map.Entry<String, ReflectionProfiler.CacheStats> entry : ReflectionProfiler.getCacheStats().entrySet()) {
+            ReflectionProfiler.CacheStats stats = entry.getValue();
+            sender.sendMessage(ChatColor.AQUA + "Cache " + entry.getKey() + ChatColor.GRAY + " hits: " + ChatColor.WHITE + stats.getHits()
+                    + ChatColor.GRAY + " misses: " + ChatColor.WHITE + stats.getMisses()
+                    + ChatColor.GRAY + " ratio: " + ChatColor.WHITE + String.format("%.1f%%", stats.getHitRatio() * 100));
+        }
+    }
+
+}
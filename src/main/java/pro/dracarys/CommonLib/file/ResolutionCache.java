@@ -0,0 +1,120 @@
+package pro.dracarys.CommonLib.file;
+
+import org.bukkit.Bukkit;
+import org.simpleyaml.configuration.file.YamlFile;
+import pro.dracarys.CommonLib.particles.ReflectionUtils;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persists the outcome of reflective probing (e.g. which of several candidate field names exists) per server build
+ * <p>
+ * Entries are only reused if the stored build string matches the running server, callers should still fall back to probing if a stored entry fails to resolve
+ */
+public final class ResolutionCache {
+    private static final String FILE_NAME = "reflection-cache.yml";
+    private static final Map<String, String> ENTRIES = new ConcurrentHashMap<String, String>();
+    private static File file;
+    private static volatile boolean dirty;
+
+    // Prevent accidental construction
+    private ResolutionCache() {
+    }
+
+    /**
+     * Loads the stored entries from the data folder, discarding them if they were recorded on another server build
+     *
+     * @param dataFolder Data folder of the plugin
+     */
+    public static void load(File dataFolder) {
+        file = new File(dataFolder, FILE_NAME);
+        ENTRIES.clear();
+        dirty = false;
+        if (!file.exists()) {
+            return;
+        }
+        YamlFile yamlFile = new YamlFile(file);
+        try {
+            yamlFile.load();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+        if (!getBuild().equals(yamlFile.getString("build"))) {
+            dirty = true;
+            return;
+        }
+        if (yamlFile.isConfigurationSection("members")) {
+            for (String key : yamlFile.getConfigurationSection("members").getKeys(false)) {
+                ENTRIES.put(key, yamlFile.getString("members." + key));
+            }
+        }
+    }
+
+    /**
+     * Writes the entries to the data folder if they changed since they were loaded
+     */
+    public static void save() {
+        if (file == null || !dirty) {
+            return;
+        }
+        YamlFile yamlFile = new YamlFile(file);
+        yamlFile.set("build", getBuild());
+        for (Map.Entry<String, String> entry : ENTRIES.entrySet()) {
+            yamlFile.set("members." + entry.getKey(), entry.getValue());
+        }
+        try {
+            if (!file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+            }
+            yamlFile.save();
+            dirty = false;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns a stored entry
+     *
+     * @param key Key of the entry, dots are not allowed
+     * @return The stored value or <code>null</code> if nothing was recorded for this build
+     */
+    public static String get(String key) {
+        return ENTRIES.get(key);
+    }
+
+    /**
+     * Records an entry which will be persisted on the next {@link #save()}
+     *
+     * @param key   Key of the entry, dots are not allowed
+     * @param value Resolved value
+     */
+    public static void put(String key, String value) {
+        if (!value.equals(ENTRIES.put(key, value))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Removes an entry which turned out to be stale
+     *
+     * @param key Key of the entry
+     */
+    public static void invalidate(String key) {
+        if (ENTRIES.remove(key) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Returns the build string of the running server
+     *
+     * @return The server build
+     */
+    public static String getBuild() {
+        return Bukkit.getVersion() + " " + ReflectionUtils.PackageType.getServerVersion();
+    }
+}
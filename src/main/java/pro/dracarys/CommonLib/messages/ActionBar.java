@@ -1,10 +1,12 @@
 package pro.dracarys.CommonLib.messages;
 
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 import pro.dracarys.CommonLib.CommonLib;
+import pro.dracarys.CommonLib.file.ResolutionCache;
+import pro.dracarys.CommonLib.particles.ReflectionProfiler;
+import pro.dracarys.CommonLib.particles.ReflectionUtils.PackageType;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -12,8 +14,11 @@ import java.lang.reflect.Method;
 
 public class ActionBar {
 
+    private static final String CHAT_MESSAGE_TYPE_KEY = "actionbar-chat-message-type";
     private static String nmsver;
     private static boolean useOldMethods = false;
+    private static Boolean useChatMessageType;
+    private static Object gameInfoType;
 
     /**
      * @param player  the recipient of the actionbar message.
@@ -24,40 +29,42 @@ public class ActionBar {
         if (!player.isOnline()) {
             return; // Player may have logged out
         }
-        nmsver = Bukkit.getServer().getClass().getPackage().getName();
-        nmsver = nmsver.substring(nmsver.lastIndexOf(".") + 1);
+        if (nmsver == null) {
+            nmsver = PackageType.getServerVersion();
 
-        if (nmsver.equalsIgnoreCase("v1_8_R1") || nmsver.startsWith("v1_7_")) { // Not sure if 1_7 works for the protocol hack?
-            useOldMethods = true;
+            if (nmsver.equalsIgnoreCase("v1_8_R1") || nmsver.startsWith("v1_7_")) { // Not sure if 1_7 works for the protocol hack?
+                useOldMethods = true;
+            }
         }
 
+        long start = ReflectionProfiler.start();
         try {
-            Class<?> craftPlayerClass = Class.forName("org.bukkit.craftbukkit." + nmsver + ".entity.CraftPlayer");
+            Class<?> craftPlayerClass = PackageType.CRAFTBUKKIT_ENTITY.getClass("CraftPlayer");
             Object craftPlayer = craftPlayerClass.cast(player);
             Object packet;
-            Class<?> packetPlayOutChatClass = Class.forName("net.minecraft.server." + nmsver + ".PacketPlayOutChat");
-            Class<?> packetClass = Class.forName("net.minecraft.server." + nmsver + ".Packet");
+            Class<?> packetPlayOutChatClass = PackageType.MINECRAFT_SERVER.getClass("PacketPlayOutChat");
+            Class<?> packetClass = PackageType.MINECRAFT_SERVER.getClass("Packet");
             if (useOldMethods) {
-                Class<?> chatSerializerClass = Class.forName("net.minecraft.server." + nmsver + ".ChatSerializer");
-                Class<?> iChatBaseComponentClass = Class.forName("net.minecraft.server." + nmsver + ".IChatBaseComponent");
+                Class<?> chatSerializerClass = PackageType.MINECRAFT_SERVER.getClass("ChatSerializer");
+                Class<?> iChatBaseComponentClass = PackageType.MINECRAFT_SERVER.getClass("IChatBaseComponent");
                 Method m3 = chatSerializerClass.getDeclaredMethod("a", String.class);
                 Object cbc = iChatBaseComponentClass.cast(m3.invoke(chatSerializerClass, "{\"text\": \"" + message + "\"}"));
                 packet = packetPlayOutChatClass.getConstructor(new Class<?>[]{iChatBaseComponentClass, byte.class}).newInstance(cbc, (byte) 2);
             } else {
-                Class<?> chatComponentTextClass = Class.forName("net.minecraft.server." + nmsver + ".ChatComponentText");
-                Class<?> iChatBaseComponentClass = Class.forName("net.minecraft.server." + nmsver + ".IChatBaseComponent");
-                try {
-                    Class<?> chatMessageTypeClass = Class.forName("net.minecraft.server." + nmsver + ".ChatMessageType");
-                    Object[] chatMessageTypes = chatMessageTypeClass.getEnumConstants();
-                    Object chatMessageType = null;
-                    for (Object obj : chatMessageTypes) {
-                        if (obj.toString().equals("GAME_INFO")) {
-                            chatMessageType = obj;
+                Class<?> chatComponentTextClass = PackageType.MINECRAFT_SERVER.getClass("ChatComponentText");
+                Class<?> iChatBaseComponentClass = PackageType.MINECRAFT_SERVER.getClass("IChatBaseComponent");
+                Class<?> chatMessageTypeClass = getChatMessageTypeClass();
+                if (chatMessageTypeClass != null) {
+                    if (gameInfoType == null) {
+                        for (Object obj : chatMessageTypeClass.getEnumConstants()) {
+                            if (obj.toString().equals("GAME_INFO")) {
+                                gameInfoType = obj;
+                            }
                         }
                     }
                     Object chatCompontentText = chatComponentTextClass.getConstructor(new Class<?>[]{String.class}).newInstance(message);
-                    packet = packetPlayOutChatClass.getConstructor(new Class<?>[]{iChatBaseComponentClass, chatMessageTypeClass}).newInstance(chatCompontentText, chatMessageType);
-                } catch (ClassNotFoundException cnfe) {
+                    packet = packetPlayOutChatClass.getConstructor(new Class<?>[]{iChatBaseComponentClass, chatMessageTypeClass}).newInstance(chatCompontentText, gameInfoType);
+                } else {
                     Object chatCompontentText = chatComponentTextClass.getConstructor(new Class<?>[]{String.class}).newInstance(message);
                     packet = packetPlayOutChatClass.getConstructor(new Class<?>[]{iChatBaseComponentClass, byte.class}).newInstance(chatCompontentText, (byte) 2);
                 }
@@ -70,6 +77,40 @@ public class ActionBar {
             sendPacketMethod.invoke(playerConnection, packet);
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            ReflectionProfiler.record("ActionBar#sendActionBar", start);
+        }
+    }
+
+    private static boolean useChatMessageType() {
+        if (useChatMessageType == null) {
+            String stored = ResolutionCache.get(CHAT_MESSAGE_TYPE_KEY);
+            if (stored != null) {
+                useChatMessageType = Boolean.valueOf(stored);
+            } else {
+                try {
+                    PackageType.MINECRAFT_SERVER.getClass("ChatMessageType");
+                    useChatMessageType = true;
+                } catch (ClassNotFoundException cnfe) {
+                    useChatMessageType = false;
+                }
+                ResolutionCache.put(CHAT_MESSAGE_TYPE_KEY, useChatMessageType.toString());
+            }
+        }
+        return useChatMessageType;
+    }
+
+    private static Class<?> getChatMessageTypeClass() {
+        if (!useChatMessageType()) {
+            return null;
+        }
+        try {
+            return PackageType.MINECRAFT_SERVER.getClass("ChatMessageType");
+        } catch (ClassNotFoundException cnfe) {
+            // Stale entry, probe again so the missing class is stored for this build
+            ResolutionCache.invalidate(CHAT_MESSAGE_TYPE_KEY);
+            useChatMessageType = null;
+            return useChatMessageType() ? getChatMessageTypeClass() : null;
         }
     }
 
@@ -1,14 +1,23 @@
 package pro.dracarys.CommonLib.messages;
 
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
+import pro.dracarys.CommonLib.file.ResolutionCache;
+import pro.dracarys.CommonLib.particles.ReflectionProfiler;
+import pro.dracarys.CommonLib.particles.ReflectionUtils;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 
 public class Titles {
 
+    private static Field tabHeaderField;
+    private static Field tabFooterField;
+    private static Method getHandleMethod;
+    private static Field playerConnectionField;
+    private static Method sendPacketMethod;
+
     @Deprecated
     public static void sendTitle(Player player, Integer fadeIn, Integer stay, Integer fadeOut, String message) {
         sendTitle(player, fadeIn, stay, fadeOut, message, null);
@@ -25,19 +34,34 @@ public class Titles {
     }
 
     public static void sendPacket(Player player, Object packet) {
+        long start = ReflectionProfiler.start();
         try {
-            Object handle = player.getClass().getMethod("getHandle").invoke(player);
-            Object playerConnection = handle.getClass().getField("playerConnection").get(handle);
-            playerConnection.getClass().getMethod("sendPacket", getNMSClass("Packet")).invoke(playerConnection, packet);
+            resolveConnectionMembers(player.getClass());
+            Object handle = getHandleMethod.invoke(player);
+            Object playerConnection = playerConnectionField.get(handle);
+            sendPacketMethod.invoke(playerConnection, packet);
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            ReflectionProfiler.record("Titles#sendPacket", start);
+        }
+    }
+
+    private static void resolveConnectionMembers(Class<?> playerClass) throws NoSuchMethodException, NoSuchFieldException {
+        if (sendPacketMethod != null && getHandleMethod.getDeclaringClass().isAssignableFrom(playerClass)) {
+            return;
         }
+        Method handleMethod = ReflectionUtils.getMethod(playerClass, "getHandle");
+        Field connectionField = handleMethod.getReturnType().getField("playerConnection");
+        Method packetMethod = ReflectionUtils.getMethod(connectionField.getType(), "sendPacket", getNMSClass("Packet"));
+        getHandleMethod = handleMethod;
+        playerConnectionField = connectionField;
+        sendPacketMethod = packetMethod;
     }
 
     public static Class<?> getNMSClass(String name) {
-        String version = Bukkit.getServer().getClass().getPackage().getName().split("\\.")[3];
         try {
-            return Class.forName("net.minecraft.server." + version + "." + name);
+            return ReflectionUtils.PackageType.MINECRAFT_SERVER.getClass(name);
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
             return null;
@@ -133,25 +157,45 @@ public class Titles {
                     .invoke(null, "{\"text\":\"" + footer + "\"}");
             Constructor<?> titleConstructor = getNMSClass("PacketPlayOutPlayerListHeaderFooter").getConstructor();
             Object packet = titleConstructor.newInstance();
-            try {
-                Field aField = packet.getClass().getDeclaredField("a");
-                aField.setAccessible(true);
-                aField.set(packet, tabHeader);
-                Field bField = packet.getClass().getDeclaredField("b");
-                bField.setAccessible(true);
-                bField.set(packet, tabFooter);
-            } catch (Exception e) {
-                Field aField = packet.getClass().getDeclaredField("header");
-                aField.setAccessible(true);
-                aField.set(packet, tabHeader);
-                Field bField = packet.getClass().getDeclaredField("footer");
-                bField.setAccessible(true);
-                bField.set(packet, tabFooter);
-            }
+            resolveTabFields(packet.getClass());
+            tabHeaderField.set(packet, tabHeader);
+            tabFooterField.set(packet, tabFooter);
             sendPacket(player, packet);
         } catch (Exception ex) {
             ex.printStackTrace();
         }
     }
 
-}
\ No newline at end of file
+    private static void resolveTabFields(Class<?> packetClass) throws NoSuchFieldException {
+        if (tabHeaderField != null) {
+            return;
+        }
+        String header = ResolutionCache.get("titles-tab-header");
+        String footer = ResolutionCache.get("titles-tab-footer");
+        if (header != null && footer != null) {
+            try {
+                setTabFields(packetClass, header, footer);
+                return;
+            } catch (NoSuchFieldException e) {
+                // Stale entry, probe the field names again
+            }
+        }
+        try {
+            setTabFields(packetClass, "a", "b");
+        } catch (NoSuchFieldException e) {
+            setTabFields(packetClass, "header", "footer");
+        }
+        ResolutionCache.put("titles-tab-header", tabHeaderField.getName());
+        ResolutionCache.put("titles-tab-footer", tabFooterField.getName());
+    }
+
+    private static void setTabFields(Class<?> packetClass, String header, String footer) throws NoSuchFieldException {
+        Field headerField = packetClass.getDeclaredField(header);
+        Field footerField = packetClass.getDeclaredField(footer);
+        headerField.setAccessible(true);
+        footerField.setAccessible(true);
+        tabFooterField = footerField;
+        tabHeaderField = headerField;
+    }
+
+}
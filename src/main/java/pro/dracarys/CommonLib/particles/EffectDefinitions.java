@@ -0,0 +1,258 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Material;
+import org.simpleyaml.configuration.ConfigurationSection;
+import pro.dracarys.CommonLib.file.FileManager;
+import pro.dracarys.CommonLib.file.FileManager.CustomFile;
+import pro.dracarys.CommonLib.particles.ParticleEffect.BlockData;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ItemData;
+import pro.dracarys.CommonLib.particles.ParticleEffect.NoteColor;
+import pro.dracarys.CommonLib.particles.ParticleEffect.OrdinaryColor;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticleColor;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticleData;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticleProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles particle effects defined in YAML into {@link EffectProgram}s
+ * <p>
+ * Every key of the <code>effects</code> section (or of the root if there is none) defines an effect, e.g.:
+ * <pre>
+ * effects:
+ *   halo:
+ *     particle: REDSTONE
+ *     colors: ["255,0,0", "#FFAA00"]   # cycled frame by frame, only for colorable effects
+ *     offset: [0, 0, 0]                # ignored for colored effects
+ *     speed: 0
+ *     amount: 1
+ *     data: DIRT:0                     # material and data value, only for block and item effects
+ *     period: 2                        # ticks between two frames
+ *     lifetime: -1                     # ticks until the effect stops, -1 to run until it is cancelled
+ *     range: 32
+ *     shape:
+ *       type: circle                   # circle, sphere, helix, line or cube
+ *       radius: 0.6
+ *       points: 24
+ *     rotation:
+ *       axis: [0, 1, 0]
+ *       frames: 40                     # frames of a full turn
+ *     position: [0, 2.2, 0]            # offset of the shape from the origin
+ * </pre>
+ * Shapes take <code>radius</code>, <code>points</code>, <code>height</code> and <code>turns</code> (helix), <code>end</code> and <code>step</code> (line) or <code>size</code> and <code>step</code> (cube)
+ * <p>
+ * <b>Note:</b> Definitions are validated completely while they are compiled, so errors surface when loading and not when the effect runs
+ */
+public final class EffectDefinitions {
+    private static final int MAX_FRAMES = 360;
+
+    // Prevent accidental construction
+    private EffectDefinitions() {
+    }
+
+    /**
+     * Compiles all effects of a custom file loaded through the {@link FileManager}
+     *
+     * @param name Name of the custom file
+     * @return The compiled effects by their name, in the order of the file
+     * @throws IllegalArgumentException  If the file could not be found
+     * @throws EffectDefinitionException If an effect definition is invalid
+     * @see FileManager#registerCustomFilesFolder(String)
+     */
+    public static Map<String, EffectProgram> load(String name) throws IllegalArgumentException, EffectDefinitionException {
+        CustomFile file = FileManager.getInstance().getFile(name);
+        if (file == null || !file.exists()) {
+            throw new IllegalArgumentException("The file " + name + ".yml could not be found");
+        }
+        return compile(file.getYamlFile());
+    }
+
+    /**
+     * Compiles all effects of a configuration section
+     *
+     * @param section Section holding an <code>effects</code> section or the effects themselves
+     * @return The compiled effects by their name, in the order of the section
+     * @throws EffectDefinitionException If an effect definition is invalid
+     */
+    public static Map<String, EffectProgram> compile(ConfigurationSection section) throws EffectDefinitionException {
+        ConfigurationSection effects = section.isConfigurationSection("effects") ? section.getConfigurationSection("effects") : section;
+        Map<String, EffectProgram> programs = new LinkedHashMap<>();
+        for (String key : effects.getKeys(false)) {
+            if (effects.isConfigurationSection(key)) {
+                programs.put(key, compile(key, effects.getConfigurationSection(key)));
+            }
+        }
+        return Collections.unmodifiableMap(programs);
+    }
+
+    /**
+     * Compiles a single effect
+     *
+     * @param name    Name of the effect
+     * @param section Section holding the definition
+     * @return The compiled effect
+     * @throws EffectDefinitionException If the definition is invalid
+     */
+    public static EffectProgram compile(String name, ConfigurationSection section) throws EffectDefinitionException {
+        try {
+            ParticleTemplate[] templates = compileTemplates(section);
+            PointBuffer[] frames = compileFrames(section);
+            int period = section.getInt("period", 1);
+            if (period < 1) {
+                throw new IllegalArgumentException("The period is lower than 1");
+            }
+            double range = section.getDouble("range", 32);
+            if (range < 1) {
+                throw new IllegalArgumentException("The range is lower than 1");
+            }
+            return new EffectProgram(name, templates, frames, period, section.getInt("lifetime", -1), range);
+        } catch (RuntimeException exception) {
+            throw new EffectDefinitionException("Invalid particle effect '" + name + "': " + exception.getMessage(), exception);
+        }
+    }
+
+    private static ParticleTemplate[] compileTemplates(ConfigurationSection section) {
+        String particle = section.getString("particle");
+        if (particle == null) {
+            throw new IllegalArgumentException("The particle is missing");
+        }
+        ParticleEffect effect = ParticleEffect.fromName(particle);
+        if (effect == null) {
+            try {
+                effect = ParticleEffect.valueOf(particle.toUpperCase());
+            } catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException("Unknown particle " + particle);
+            }
+        }
+        List<String> colors = section.isList("colors") ? new ArrayList<>(section.getStringList("colors")) : new ArrayList<String>();
+        if (section.isString("color")) {
+            colors.add(section.getString("color"));
+        }
+        if (!colors.isEmpty()) {
+            ParticleTemplate[] templates = new ParticleTemplate[colors.size()];
+            for (int index = 0; index < templates.length; index++) {
+                templates[index] = effect.createTemplate(parseColor(effect, colors.get(index)));
+            }
+            return templates;
+        }
+        double[] offset = vector(section, "offset", 0, 0, 0);
+        float speed = (float) section.getDouble("speed", 0);
+        int amount = section.getInt("amount", 1);
+        if (effect.hasProperty(ParticleProperty.REQUIRES_DATA)) {
+            ParticleData data = parseData(effect, section.getString("data"));
+            return new ParticleTemplate[]{effect.createTemplate(data, (float) offset[0], (float) offset[1], (float) offset[2], speed, amount)};
+        }
+        return new ParticleTemplate[]{effect.createTemplate((float) offset[0], (float) offset[1], (float) offset[2], speed, amount)};
+    }
+
+    private static PointBuffer[] compileFrames(ConfigurationSection section) {
+        PointBuffer shape = compileShape(section.getConfigurationSection("shape"));
+        double[] position = vector(section, "position", 0, 0, 0);
+        ConfigurationSection rotation = section.getConfigurationSection("rotation");
+        if (rotation == null) {
+            return new PointBuffer[]{shape.translate(position[0], position[1], position[2])};
+        }
+        double[] axis = vector(rotation, "axis", 0, 1, 0);
+        int count = rotation.getInt("frames", 20);
+        if (count < 1 || count > MAX_FRAMES) {
+            throw new IllegalArgumentException("The rotation frames are not between 1 and " + MAX_FRAMES);
+        }
+        // A full turn is spread evenly over the frames, so the animation loops seamlessly
+        PointBuffer[] frames = new PointBuffer[count];
+        for (int frame = 0; frame < count; frame++) {
+            Transform transform = Transform.rotation(axis[0], axis[1], axis[2], Math.PI * 2 * frame / count).translate(position[0], position[1], position[2]);
+            frames[frame] = transform.apply(shape);
+        }
+        return frames;
+    }
+
+    private static PointBuffer compileShape(ConfigurationSection shape) {
+        if (shape == null) {
+            return new PointBuffer(new double[3], 1);
+        }
+        String type = shape.getString("type", "point");
+        switch (type.toLowerCase()) {
+            case "point":
+                return new PointBuffer(new double[3], 1);
+            case "circle":
+                return Shapes.circle(shape.getDouble("radius", 1), shape.getInt("points", 20));
+            case "sphere":
+                return Shapes.sphere(shape.getDouble("radius", 1), shape.getInt("points", 50));
+            case "helix":
+                return Shapes.helix(shape.getDouble("radius", 1), shape.getDouble("height", 2), shape.getDouble("turns", 2), shape.getInt("points", 40));
+            case "line": {
+                double[] end = vector(shape, "end", 0, 1, 0);
+                return Shapes.line(end[0], end[1], end[2], shape.getDouble("step", 0.25));
+            }
+            case "cube": {
+                double[] size = vector(shape, "size", 1, 1, 1);
+                PointBuffer edges = Shapes.cubeEdges(size[0], size[1], size[2], shape.getDouble("step", 0.25));
+                // Cubes are centered on the origin like the other shapes
+                return edges.translate(-size[0] / 2, -size[1] / 2, -size[2] / 2);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown shape " + type);
+        }
+    }
+
+    private static ParticleColor parseColor(ParticleEffect effect, String value) {
+        if (effect == ParticleEffect.NOTE) {
+            return new NoteColor(Integer.parseInt(value.trim()));
+        }
+        String color = value.trim();
+        if (color.startsWith("#")) {
+            int rgb = Integer.parseInt(color.substring(1), 16);
+            return new OrdinaryColor((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+        }
+        String[] parts = color.split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid color " + value);
+        }
+        return new OrdinaryColor(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()));
+    }
+
+    private static ParticleData parseData(ParticleEffect effect, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The data is missing");
+        }
+        String[] parts = value.split(":");
+        Material material = Material.matchMaterial(parts[0].trim());
+        if (material == null) {
+            throw new IllegalArgumentException("Unknown material " + parts[0]);
+        }
+        byte data = parts.length > 1 ? Byte.parseByte(parts[1].trim()) : 0;
+        return effect == ParticleEffect.ITEM_CRACK ? new ItemData(material, data) : new BlockData(material, data);
+    }
+
+    private static double[] vector(ConfigurationSection section, String path, double x, double y, double z) {
+        if (!section.isList(path)) {
+            return new double[]{x, y, z};
+        }
+        List<Double> values = section.getDoubleList(path);
+        if (values.size() != 3) {
+            throw new IllegalArgumentException("The " + path + " does not have 3 values");
+        }
+        return new double[]{values.get(0), values.get(1), values.get(2)};
+    }
+
+    /**
+     * Represents a runtime exception that is thrown if a particle effect definition is invalid
+     */
+    public static final class EffectDefinitionException extends RuntimeException {
+        private static final long serialVersionUID = 3203085387160737484L;
+
+        /**
+         * Construct a new effect definition exception
+         *
+         * @param message Message that will be logged
+         * @param cause   Cause of the exception
+         */
+        public EffectDefinitionException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import pro.dracarys.CommonLib.particles.EffectRegistry.ActiveEffect;
+
+/**
+ * Represents a configured particle effect compiled into an immutable execution plan
+ * <p>
+ * The geometry of every frame and the templates of every color are computed once when the definition is loaded, so rendering a frame only looks them up and moves the points to the origin
+ *
+ * @see EffectDefinitions
+ */
+public final class EffectProgram implements ParticleRenderer {
+    private final String name;
+    private final ParticleTemplate[] templates;
+    private final PointBuffer[] frames;
+    private final int period;
+    private final int lifetime;
+    private final double range;
+
+    /**
+     * Construct a new effect program
+     *
+     * @param name      Name of the effect
+     * @param templates Templates which are cycled through frame by frame
+     * @param frames    Points of the frames relative to the origin, they are cycled through frame by frame
+     * @param period    Amount of ticks between two frames
+     * @param lifetime  Amount of ticks after which the effect stops or <code>-1</code> to run until it is cancelled
+     * @param range     Range of the visibility
+     */
+    EffectProgram(String name, ParticleTemplate[] templates, PointBuffer[] frames, int period, int lifetime, double range) {
+        this.name = name;
+        this.templates = templates;
+        this.frames = frames;
+        this.period = period;
+        this.lifetime = lifetime;
+        this.range = range;
+    }
+
+    /**
+     * Returns the name of this effect
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the amount of ticks between two frames
+     *
+     * @return The period
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Returns the amount of ticks after which this effect stops
+     *
+     * @return The lifetime or <code>-1</code> if the effect runs until it is cancelled
+     */
+    public int getLifetime() {
+        return lifetime;
+    }
+
+    /**
+     * Returns the range of the visibility
+     *
+     * @return The range
+     */
+    public double getRange() {
+        return range;
+    }
+
+    @Override
+    public void render(ParticleBatch batch, Location origin, long frame) {
+        PointBuffer points = frames[(int) (frame % frames.length)];
+        points.addTo(batch, templates[(int) (frame % templates.length)], origin.getX(), origin.getY(), origin.getZ());
+    }
+
+    /**
+     * Runs this effect on an entity through the {@link EffectRegistry}
+     *
+     * @param entity Entity the effect follows
+     * @return The attached effect
+     */
+    public ActiveEffect attach(Entity entity) {
+        return EffectRegistry.getInstance().attach(entity, this, period, lifetime, range);
+    }
+
+    /**
+     * Runs this effect at a fixed location through the {@link EffectRegistry}
+     *
+     * @param location Origin of the effect
+     * @return The attached effect
+     */
+    public ActiveEffect attach(Location location) {
+        return EffectRegistry.getInstance().attach(location, this, period, lifetime, range);
+    }
+
+    /**
+     * Displays the first frame of this effect once
+     *
+     * @param origin Origin of the effect
+     */
+    public void display(Location origin) {
+        ParticleBatch batch = new ParticleBatch(origin.getWorld());
+        render(batch, origin, 0);
+        batch.send(range);
+    }
+}
@@ -0,0 +1,293 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Drives persistent particle effects such as auras and trails from a single repeating task
+ * <p>
+ * Effects are attached to an entity or a fixed location with a period and a lifetime. Every tick the due effects are rendered into one batch per region cell and range, so the receivers are looked up once per batch instead of once per effect.
+ * Effects far apart never share a batch, so a batch is only sent to the players around its own cell and not to everyone who is near any of the effects in the world.
+ * Effects attached to an entity stop as soon as the entity is no longer valid (e.g. it died, despawned or the player logged out)
+ */
+public final class EffectRegistry {
+    private static final EffectRegistry instance = new EffectRegistry();
+    // Side length of a region cell in blocks (4 x 4 chunks)
+    private static final int CELL_SHIFT = 6;
+    private final Queue<ActiveEffect> added = new ConcurrentLinkedQueue<>();
+    private final List<ActiveEffect> effects = new ArrayList<>();
+    private volatile boolean active;
+
+    // Prevent accidental construction
+    private EffectRegistry() {
+    }
+
+    public static EffectRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts the repeating task which renders the effects
+     *
+     * @param plugin Plugin which owns the task
+     */
+    public void enable(Plugin plugin) {
+        if (active) {
+            return;
+        }
+        Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, 1, 1);
+        active = true;
+    }
+
+    /**
+     * Attaches an effect to an entity
+     *
+     * @param entity   Entity the effect follows
+     * @param renderer Renderer of the effect
+     * @param period   Amount of ticks between two frames
+     * @param lifetime Amount of ticks after which the effect stops or <code>-1</code> to run until it is cancelled or the entity becomes invalid
+     * @param range    Range of the visibility
+     * @return The attached effect
+     * @throws IllegalArgumentException If the period or range is lower than 1
+     */
+    public ActiveEffect attach(Entity entity, ParticleRenderer renderer, int period, int lifetime, double range) throws IllegalArgumentException {
+        return add(new ActiveEffect(entity, null, renderer, period, lifetime, range));
+    }
+
+    /**
+     * Attaches an effect to a fixed location
+     *
+     * @param location Origin of the effect
+     * @param renderer Renderer of the effect
+     * @param period   Amount of ticks between two frames
+     * @param lifetime Amount of ticks after which the effect stops or <code>-1</code> to run until it is cancelled
+     * @param range    Range of the visibility
+     * @return The attached effect
+     * @throws IllegalArgumentException If the period or range is lower than 1
+     */
+    public ActiveEffect attach(Location location, ParticleRenderer renderer, int period, int lifetime, double range) throws IllegalArgumentException {
+        return add(new ActiveEffect(null, location.clone(), renderer, period, lifetime, range));
+    }
+
+    /**
+     * Cancels all effects attached to an entity
+     *
+     * @param entity Entity whose effects are cancelled
+     */
+    public void detach(Entity entity) {
+        for (ActiveEffect effect : added) {
+            if (effect.entity == entity) {
+                effect.cancel();
+            }
+        }
+        // The effect list is only touched on the main thread, cancelling just flags the effects
+        synchronized (effects) {
+            for (ActiveEffect effect : effects) {
+                if (effect.entity == entity) {
+                    effect.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of running effects
+     *
+     * @return The amount of effects
+     */
+    public int size() {
+        synchronized (effects) {
+            return effects.size() + added.size();
+        }
+    }
+
+    private ActiveEffect add(ActiveEffect effect) {
+        added.add(effect);
+        return effect;
+    }
+
+    /**
+     * Renders the due effects and sends one batch per region cell and range
+     */
+    private void tick() {
+        Map<BatchKey, ParticleBatch> batches = render();
+        ParticleScheduler scheduler = ParticleScheduler.getInstance();
+        for (Map.Entry<BatchKey, ParticleBatch> entry : batches.entrySet()) {
+            ParticleBatch batch = entry.getValue();
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                if (scheduler.isActive()) {
+                    scheduler.submit(batch, entry.getKey().range, ParticleScheduler.Priority.NORMAL, 0);
+                } else {
+                    batch.send(entry.getKey().range);
+                }
+            } catch (RuntimeException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Renders the due effects into one batch per region cell and range
+     *
+     * @return The batches by their cell and range
+     */
+    Map<BatchKey, ParticleBatch> render() {
+        Map<BatchKey, ParticleBatch> batches = new HashMap<>();
+        Location origin = new Location(null, 0, 0, 0);
+        synchronized (effects) {
+            ActiveEffect next;
+            while ((next = added.poll()) != null) {
+                effects.add(next);
+            }
+            Iterator<ActiveEffect> iterator = effects.iterator();
+            while (iterator.hasNext()) {
+                ActiveEffect effect = iterator.next();
+                if (!effect.isActive() || (effect.entity != null && !effect.entity.isValid())) {
+                    effect.cancel();
+                    iterator.remove();
+                    continue;
+                }
+                long age = effect.age++;
+                if (effect.lifetime >= 0 && age >= effect.lifetime) {
+                    effect.cancel();
+                    iterator.remove();
+                    continue;
+                }
+                if (age % effect.period != 0) {
+                    continue;
+                }
+                if (effect.entity != null) {
+                    effect.entity.getLocation(origin);
+                } else {
+                    origin.setWorld(effect.location.getWorld());
+                    origin.setX(effect.location.getX());
+                    origin.setY(effect.location.getY());
+                    origin.setZ(effect.location.getZ());
+                }
+                World world = origin.getWorld();
+                BatchKey key = new BatchKey(world, (int) Math.floor(origin.getX()) >> CELL_SHIFT, (int) Math.floor(origin.getZ()) >> CELL_SHIFT, effect.range);
+                ParticleBatch batch = batches.get(key);
+                if (batch == null) {
+                    batch = new ParticleBatch(world);
+                    batches.put(key, batch);
+                }
+                try {
+                    effect.renderer.render(batch, origin, age / effect.period);
+                } catch (RuntimeException exception) {
+                    // A failing renderer would fail every frame, so it is stopped
+                    exception.printStackTrace();
+                    effect.cancel();
+                    iterator.remove();
+                }
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Represents an effect attached to an entity or a location
+     */
+    public static final class ActiveEffect {
+        private final Entity entity;
+        private final Location location;
+        private final ParticleRenderer renderer;
+        private final int period;
+        private final int lifetime;
+        private final double range;
+        private volatile boolean cancelled;
+        private long age;
+
+        ActiveEffect(Entity entity, Location location, ParticleRenderer renderer, int period, int lifetime, double range) throws IllegalArgumentException {
+            if (period < 1) {
+                throw new IllegalArgumentException("The period is lower than 1");
+            }
+            if (range < 1) {
+                throw new IllegalArgumentException("The range is lower than 1");
+            }
+            this.entity = entity;
+            this.location = location;
+            this.renderer = renderer;
+            this.period = period;
+            this.lifetime = lifetime;
+            this.range = range;
+        }
+
+        /**
+         * Stops this effect, it is removed on the next tick
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Determine if this effect is still running
+         *
+         * @return Whether the effect is running or not
+         */
+        public boolean isActive() {
+            return !cancelled;
+        }
+
+        /**
+         * Returns the entity this effect follows
+         *
+         * @return The entity or <code>null</code> if the effect is attached to a location
+         */
+        public Entity getEntity() {
+            return entity;
+        }
+    }
+
+    /**
+     * Represents the world, region cell and range of a batch
+     */
+    static final class BatchKey {
+        private final World world;
+        private final int cellX;
+        private final int cellZ;
+        private final double range;
+
+        BatchKey(World world, int cellX, int cellZ, double range) {
+            this.world = world;
+            this.cellX = cellX;
+            this.cellZ = cellZ;
+            this.range = range;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey other = (BatchKey) object;
+            return world == other.world && cellX == other.cellX && cellZ == other.cellZ && Double.compare(range, other.range) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(world);
+            hash = 31 * hash + cellX;
+            hash = 31 * hash + cellZ;
+            return 31 * hash + Double.hashCode(range);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package pro.dracarys.CommonLib.particles;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Represents a level of detail policy which reduces particles for players far away from an effect
+ * <p>
+ * A policy consists of distance tiers, every receiver at or beyond the minimum distance of a tier gets the reduced detail of the farthest matching tier. Receivers closer than the first tier get the full detail
+ */
+public final class LodPolicy {
+    private static final Comparator<Tier> DISTANCE_ORDER = new Comparator<Tier>() {
+        @Override
+        public int compare(Tier first, Tier second) {
+            return Double.compare(first.minDistance, second.minDistance);
+        }
+    };
+    private final Tier[] tiers;
+
+    /**
+     * Construct a new level of detail policy
+     *
+     * @param tiers Distance tiers of the policy, in any order
+     * @throws IllegalArgumentException If no tier is specified
+     */
+    public LodPolicy(Tier... tiers) throws IllegalArgumentException {
+        if (tiers.length == 0) {
+            throw new IllegalArgumentException("At least one tier is required");
+        }
+        this.tiers = tiers.clone();
+        Arrays.sort(this.tiers, DISTANCE_ORDER);
+    }
+
+    /**
+     * Returns the tiers of this policy
+     *
+     * @return The tiers, ordered by their minimum distance
+     */
+    public List<Tier> getTiers() {
+        return Collections.unmodifiableList(Arrays.asList(tiers));
+    }
+
+    /**
+     * Returns the tier which applies to a receiver at the given distance
+     *
+     * @param distance Distance between the receiver and the effect
+     * @return The tier or <code>null</code> if the receiver gets the full detail
+     */
+    public Tier getTier(double distance) {
+        int index = indexOf(distance * distance);
+        return index < 0 ? null : tiers[index];
+    }
+
+    /**
+     * Returns the amount of tiers of this policy
+     *
+     * @return The amount of tiers
+     */
+    int size() {
+        return tiers.length;
+    }
+
+    /**
+     * Returns the tier at an index
+     *
+     * @param index Index of the tier
+     * @return The tier
+     */
+    Tier tier(int index) {
+        return tiers[index];
+    }
+
+    /**
+     * Returns the index of the tier which applies to a receiver at the given squared distance
+     *
+     * @param distanceSquared Squared distance between the receiver and the effect
+     * @return The index or <code>-1</code> if the receiver gets the full detail
+     */
+    int indexOf(double distanceSquared) {
+        for (int index = tiers.length - 1; index >= 0; index--) {
+            if (distanceSquared >= tiers[index].minDistanceSquared) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the current frame number used to skip frames, which advances once per server tick
+     * <p>
+     * <b>Note:</b> The frame is counted by the {@link ParticleScheduler}, until it is enabled the frame is estimated from the time assuming 20 ticks per second
+     *
+     * @return The frame number
+     */
+    static long currentFrame() {
+        return ParticleScheduler.getInstance().isActive() ? ParticleScheduler.currentTick() : System.currentTimeMillis() / 50;
+    }
+
+    /**
+     * Represents the reduced detail beyond a certain distance
+     */
+    public static final class Tier {
+        private final double minDistance;
+        private final double minDistanceSquared;
+        private final int pointInterval;
+        private final float amountScale;
+        private final int frameInterval;
+
+        /**
+         * Construct a new tier
+         *
+         * @param minDistance   Distance from which on this tier applies
+         * @param pointInterval Only every n-th point of a point set is sent
+         * @param amountScale   Factor applied to the amount of particles, effects with an amount of 0 (directional or colored particles) are not scaled
+         * @param frameInterval Only every n-th frame is sent, the frames are staggered per player
+         * @throws IllegalArgumentException If the distance is negative, an interval is lower than 1 or the scale is not in the range (0, 1]
+         */
+        public Tier(double minDistance, int pointInterval, float amountScale, int frameInterval) throws IllegalArgumentException {
+            if (minDistance < 0) {
+                throw new IllegalArgumentException("The minimum distance is negative");
+            }
+            if (pointInterval < 1 || frameInterval < 1) {
+                throw new IllegalArgumentException("The interval is lower than 1");
+            }
+            if (amountScale <= 0 || amountScale > 1) {
+                throw new IllegalArgumentException("The amount scale is not in the range (0, 1]");
+            }
+            this.minDistance = minDistance;
+            this.minDistanceSquared = minDistance * minDistance;
+            this.pointInterval = pointInterval;
+            this.amountScale = amountScale;
+            this.frameInterval = frameInterval;
+        }
+
+        /**
+         * Returns the distance from which on this tier applies
+         *
+         * @return The minimum distance
+         */
+        public double getMinDistance() {
+            return minDistance;
+        }
+
+        /**
+         * Returns the interval of points which are sent
+         *
+         * @return The point interval
+         */
+        public int getPointInterval() {
+            return pointInterval;
+        }
+
+        /**
+         * Returns the factor applied to the amount of particles
+         *
+         * @return The amount scale
+         */
+        public float getAmountScale() {
+            return amountScale;
+        }
+
+        /**
+         * Returns the interval of frames which are sent
+         *
+         * @return The frame interval
+         */
+        public int getFrameInterval() {
+            return frameInterval;
+        }
+
+        /**
+         * Determine if a point of a point set is sent
+         *
+         * @param index Index of the point
+         * @return Whether the point is sent or not
+         */
+        boolean keepsPoint(int index) {
+            return index % pointInterval == 0;
+        }
+
+        /**
+         * Determine if the current frame is skipped for a receiver
+         *
+         * @param frame Current frame number
+         * @param seed  Seed of the receiver which staggers the sent frames
+         * @return Whether the frame is skipped or not
+         */
+        boolean skipsFrame(long frame, int seed) {
+            return frameInterval > 1 && Math.floorMod(frame + seed, (long) frameInterval) != 0;
+        }
+
+        /**
+         * Returns the reduced amount of particles
+         *
+         * @param amount Original amount of particles
+         * @return The reduced amount
+         */
+        int scaleAmount(int amount) {
+            return amount == 0 ? 0 : Math.max(1, Math.round(amount * amountScale));
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Color;
+import org.bukkit.Particle;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.material.MaterialData;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticleData;
+
+/**
+ * Displays particle effects through the native {@link Particle} API, which is available since 1.9
+ * <p>
+ * Every {@link ParticleEffect} is mapped onto the native particle of the same name once. Effects without a native counterpart on the running version, and all effects on servers without the native API, are sent through reflection instead
+ * <p>
+ * The backend is used by default wherever the native API exists (1.9+), reflection is only the fallback for legacy versions and effects without a native counterpart.
+ * Long distance effects are sent through reflection where possible, since there is no long distance overload of {@link Player#spawnParticle(Particle, double, double, double, int)}
+ * <p>
+ * <b>Note:</b> Native particles are only referenced after {@link #isAvailable()} was checked, so this class can be loaded on legacy versions
+ */
+public final class NativeParticleBackend {
+    private static final boolean AVAILABLE;
+    // Resolved native particles by the ordinal of the effect, stored as objects to not load the native class on legacy versions
+    private static final Object[] PARTICLES = new Object[ParticleEffect.values().length];
+    // The first version whose packet no longer takes the legacy particle enum
+    private static final int NATIVE_ONLY_VERSION = 13;
+    private static volatile boolean enabled = true;
+    private static volatile Color dustColor = Color.fromRGB(255, 0, 0);
+
+    // Resolve the native particles once
+    static {
+        boolean available;
+        try {
+            Class.forName("org.bukkit.Particle");
+            available = true;
+        } catch (ClassNotFoundException exception) {
+            available = false;
+        }
+        AVAILABLE = available;
+        if (AVAILABLE) {
+            for (ParticleEffect effect : ParticleEffect.values()) {
+                PARTICLES[effect.ordinal()] = resolve(effect);
+            }
+        }
+    }
+
+    // Prevent accidental construction
+    private NativeParticleBackend() {
+    }
+
+    /**
+     * Determine if the native particle API exists on this server
+     *
+     * @return Whether the native particle API is available or not
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Determine if effects are displayed natively where possible
+     *
+     * @return Whether the native backend is used or not
+     */
+    public static boolean isEnabled() {
+        return enabled || isRequired();
+    }
+
+    /**
+     * Enables or disables the native backend on versions which still have the reflective packet, it is enabled by default
+     * <p>
+     * <b>Note:</b> On 1.13 and higher the native backend is always used, since there is no reflective packet to fall back to
+     *
+     * @param enabled Whether the native backend is used or not
+     */
+    public static void setEnabled(boolean enabled) {
+        NativeParticleBackend.enabled = enabled;
+    }
+
+    /**
+     * Determine if the reflective packet is unavailable on this server, so effects can only be displayed natively
+     *
+     * @return Whether the native backend is required or not
+     */
+    public static boolean isRequired() {
+        return AVAILABLE && ParticleEffect.ParticlePacket.getVersion() >= NATIVE_ONLY_VERSION;
+    }
+
+    /**
+     * Returns the color of dust displayed with an amount of particles, whose offsets spread the particles instead of carrying a color
+     *
+     * @return The color of the dust
+     */
+    public static Color getDustColor() {
+        return dustColor;
+    }
+
+    /**
+     * Sets the color of dust displayed with an amount of particles, it is red by default like the dust of the reflective packet
+     *
+     * @param color Color of the dust
+     */
+    public static void setDustColor(Color color) {
+        dustColor = color;
+    }
+
+    /**
+     * Determine if a particle effect can be displayed natively
+     *
+     * @param effect Particle effect to check
+     * @return Whether the effect is displayed through the native API or not
+     */
+    public static boolean supports(ParticleEffect effect) {
+        return PARTICLES[effect.ordinal()] != null && (enabled || isRequired());
+    }
+
+    /**
+     * Determine if a particle effect is displayed natively with the given distance
+     *
+     * @param effect       Particle effect to check
+     * @param longDistance Indicates whether the maximum distance is increased from 256 to 65536
+     * @return Whether the effect is displayed through the native API or not
+     */
+    static boolean displays(ParticleEffect effect, boolean longDistance) {
+        // Only the packet can increase the distance, so it is preferred as long as it exists
+        return supports(effect) && (!longDistance || isRequired());
+    }
+
+    /**
+     * Converts the data of an effect into the data the native particle expects
+     *
+     * @param effect Particle effect
+     * @param data   Data of the effect or <code>null</code>
+     * @return The native data or <code>null</code> if the particle takes none or it is only known when it is displayed
+     */
+    @SuppressWarnings("deprecation")
+    static Object toNativeData(ParticleEffect effect, ParticleData data) {
+        Class<?> dataType = ((Particle) PARTICLES[effect.ordinal()]).getDataType();
+        if (data == null || dataType == Void.class) {
+            return null;
+        }
+        if (dataType == ItemStack.class) {
+            return new ItemStack(data.getMaterial(), 1, data.getData());
+        }
+        if (dataType == MaterialData.class) {
+            return new MaterialData(data.getMaterial(), data.getData());
+        }
+        // Block data and its factory methods only exist since 1.13, so the type is compared by name
+        if (dataType.getName().equals("org.bukkit.block.data.BlockData")) {
+            // Only legacy materials carry their variant in the data value
+            return data.getMaterial().isLegacy() ? Bukkit.getUnsafe().fromLegacy(data.getMaterial(), data.getData()) : data.getMaterial().createBlockData();
+        }
+        return null;
+    }
+
+    /**
+     * Converts the color of a colored effect, which is encoded in its offsets, into the dust options the native particle expects
+     *
+     * @param effect  Particle effect
+     * @param offsetX Red value divided by 255
+     * @param offsetY Green value divided by 255
+     * @param offsetZ Blue value divided by 255
+     * @return The dust options or <code>null</code> if the particle takes none
+     */
+    static Object toDustOptions(ParticleEffect effect, float offsetX, float offsetY, float offsetZ) {
+        if (!takesDustOptions(effect)) {
+            return null;
+        }
+        return new Particle.DustOptions(Color.fromRGB(toChannel(offsetX), toChannel(offsetY), toChannel(offsetZ)), 1);
+    }
+
+    /**
+     * Returns the dust options of a colored effect displayed with an amount of particles
+     *
+     * @param effect Particle effect
+     * @return The dust options in the {@link #getDustColor() dust color} or <code>null</code> if the particle takes none
+     */
+    static Object toDefaultDustOptions(ParticleEffect effect) {
+        return takesDustOptions(effect) ? new Particle.DustOptions(dustColor, 1) : null;
+    }
+
+    private static boolean takesDustOptions(ParticleEffect effect) {
+        // Dust options only exist since 1.13, so the type is compared by name
+        return ((Particle) PARTICLES[effect.ordinal()]).getDataType().getName().equals("org.bukkit.Particle$DustOptions");
+    }
+
+    /**
+     * Displays an effect to a single player
+     *
+     * @param player     Receiver of the effect
+     * @param effect     Particle effect
+     * @param x          Center x-coordinate of the effect
+     * @param y          Center y-coordinate of the effect
+     * @param z          Center z-coordinate of the effect
+     * @param offsetX    Offset or color value on the x-axis
+     * @param offsetY    Offset or color value on the y-axis
+     * @param offsetZ    Offset or color value on the z-axis
+     * @param speed      Display speed of the particles
+     * @param amount     Amount of particles, <code>0</code> for a single directional or colored particle
+     * @param nativeData Data converted by {@link #toNativeData(ParticleEffect, ParticleData)} or the dust options of a colored effect
+     */
+    static void spawn(Player player, ParticleEffect effect, double x, double y, double z, float offsetX, float offsetY, float offsetZ, float speed, int amount, Object nativeData) {
+        long start = ReflectionProfiler.start();
+        try {
+            Particle particle = (Particle) PARTICLES[effect.ordinal()];
+            Class<?> dataType = particle.getDataType();
+            // Dust requires its color as data since 1.13, colored displays encode it in the offsets like the legacy packet does
+            if (dataType != Void.class && dataType.getName().equals("org.bukkit.Particle$DustOptions")) {
+                if (amount == 0) {
+                    Object options = nativeData != null ? nativeData : toDustOptions(effect, offsetX, offsetY, offsetZ);
+                    player.spawnParticle(particle, x, y, z, 1, 0, 0, 0, 0, options);
+                } else {
+                    Object options = nativeData != null ? nativeData : toDefaultDustOptions(effect);
+                    player.spawnParticle(particle, x, y, z, amount, offsetX, offsetY, offsetZ, speed, options);
+                }
+                return;
+            }
+            player.spawnParticle(particle, x, y, z, amount, offsetX, offsetY, offsetZ, speed, nativeData);
+        } finally {
+            ReflectionProfiler.record("NativeParticleBackend#spawn", start);
+        }
+    }
+
+    private static int toChannel(float value) {
+        return Math.max(0, Math.min(255, Math.round(value * 255)));
+    }
+
+    private static Object resolve(ParticleEffect effect) {
+        Particle particle;
+        try {
+            particle = Particle.valueOf(effect.name());
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+        // Particles whose data cannot be converted could not be spawned
+        String dataType = particle.getDataType().getName();
+        switch (dataType) {
+            case "java.lang.Void":
+            case "org.bukkit.inventory.ItemStack":
+            case "org.bukkit.material.MaterialData":
+            case "org.bukkit.block.data.BlockData":
+            case "org.bukkit.Particle$DustOptions":
+                return particle;
+            default:
+                return null;
+        }
+    }
+}
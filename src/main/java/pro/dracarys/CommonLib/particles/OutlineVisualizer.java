@@ -0,0 +1,235 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shows the outline of a cuboid region (e.g. a selection) to single players and keeps it up to date while its bounds change
+ * <p>
+ * The points last sent to a viewer are kept, so when the bounds change only the points which are new or moved are sent right away.
+ * The remaining points are refreshed in slices spread over several ticks instead of resending the whole outline every tick
+ * <p>
+ * <b>Note:</b> Visualizers are not thread safe and should only be used from the main thread
+ */
+public final class OutlineVisualizer {
+    // Points are compared in 1/16 blocks relative to an anchor, 21 bits per axis
+    private static final double KEY_SCALE = 16;
+    private static final long KEY_LIMIT = 1 << 20;
+    private final ParticleTemplate template;
+    private final double step;
+    private final int refreshTicks;
+    private final Map<UUID, Outline> outlines = new HashMap<>();
+    private BukkitTask task;
+
+    /**
+     * Construct a new outline visualizer
+     *
+     * @param template     Template of the effect drawn at every point of the outline
+     * @param step         Distance between two points of an edge
+     * @param refreshTicks Amount of ticks over which a full refresh of an outline is spread, it should be shorter than the lifetime of the particles
+     * @throws IllegalArgumentException If the step is not positive or the refresh ticks are lower than 1
+     */
+    public OutlineVisualizer(ParticleTemplate template, double step, int refreshTicks) throws IllegalArgumentException {
+        if (step <= 0) {
+            throw new IllegalArgumentException("The step is not positive");
+        }
+        if (refreshTicks < 1) {
+            throw new IllegalArgumentException("The refresh ticks are lower than 1");
+        }
+        this.template = template;
+        this.step = step;
+        this.refreshTicks = refreshTicks;
+    }
+
+    /**
+     * Starts a repeating task which calls {@link #tick()} every tick
+     *
+     * @param plugin Plugin which owns the task
+     */
+    public void start(Plugin plugin) {
+        if (task != null) {
+            return;
+        }
+        task = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, 1, 1);
+    }
+
+    /**
+     * Stops the repeating task, the outlines are kept
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Shows the outline of a region to a player or updates its bounds, the corners may be given in any order
+     *
+     * @param player  Viewer of the outline
+     * @param corner  First corner of the region
+     * @param another Opposite corner of the region
+     * @throws IllegalArgumentException If the corners are in different worlds
+     */
+    public void show(Player player, Location corner, Location another) throws IllegalArgumentException {
+        if (corner.getWorld() != another.getWorld()) {
+            throw new IllegalArgumentException("The corners are in different worlds");
+        }
+        Outline outline = outlines.get(player.getUniqueId());
+        if (outline == null) {
+            outline = new Outline(player);
+            outlines.put(player.getUniqueId(), outline);
+        }
+        outline.setBounds(corner.getWorld(), Math.min(corner.getX(), another.getX()), Math.min(corner.getY(), another.getY()), Math.min(corner.getZ(), another.getZ()),
+                Math.max(corner.getX(), another.getX()), Math.max(corner.getY(), another.getY()), Math.max(corner.getZ(), another.getZ()));
+    }
+
+    /**
+     * Stops showing the outline to a player
+     *
+     * @param player Viewer of the outline
+     */
+    public void hide(Player player) {
+        outlines.remove(player.getUniqueId());
+    }
+
+    /**
+     * Returns the amount of players an outline is shown to
+     *
+     * @return The amount of viewers
+     */
+    public int size() {
+        return outlines.size();
+    }
+
+    /**
+     * Sends the changed points of every outline whose bounds changed and the next slice of the refresh
+     */
+    public void tick() {
+        Iterator<Outline> iterator = outlines.values().iterator();
+        while (iterator.hasNext()) {
+            Outline outline = iterator.next();
+            if (!outline.player.isOnline()) {
+                iterator.remove();
+                continue;
+            }
+            try {
+                outline.tick();
+            } catch (RuntimeException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Represents the outline of a viewer and the points last sent to it
+     */
+    private final class Outline {
+        private final Player player;
+        private World world;
+        private double minX, minY, minZ, maxX, maxY, maxZ;
+        private boolean dirty;
+        private PointBuffer points;
+        // Sorted keys of the points last sent
+        private long[] keys = new long[0];
+        private long anchorX, anchorY, anchorZ;
+        private int cursor;
+
+        Outline(Player player) {
+            this.player = player;
+        }
+
+        void setBounds(World world, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            if (points != null && this.world == world && this.minX == minX && this.minY == minY && this.minZ == minZ && this.maxX == maxX && this.maxY == maxY && this.maxZ == maxZ) {
+                return;
+            }
+            this.world = world;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+            dirty = true;
+        }
+
+        void tick() {
+            if (player.getWorld() != world) {
+                return;
+            }
+            ParticleBatch batch = new ParticleBatch(world);
+            if (dirty) {
+                dirty = false;
+                update(batch);
+            }
+            // Refresh the next slice, every point is refreshed once per refresh period
+            int size = points.size();
+            int slice = (size + refreshTicks - 1) / refreshTicks;
+            for (int sent = 0; sent < slice; sent++) {
+                if (cursor >= size) {
+                    cursor = 0;
+                }
+                batch.add(template, points.getX(cursor), points.getY(cursor), points.getZ(cursor));
+                cursor++;
+            }
+            batch.send(player);
+        }
+
+        /**
+         * Replaces the points by the current bounds and adds the points which were not sent before to the batch
+         */
+        private void update(ParticleBatch batch) {
+            // Selections change their size with every drag, caching them would evict the shapes effects reuse
+            PointBuffer updated = Shapes.generateCubeEdges(maxX - minX, maxY - minY, maxZ - minZ, step).translate(minX, minY, minZ);
+            long[] previous = keys;
+            if (points == null || points.size() == 0 || !inRange(minX - anchorX, minY - anchorY, minZ - anchorZ) || !inRange(maxX - anchorX, maxY - anchorY, maxZ - anchorZ)) {
+                // Everything is sent anyway, so the anchor can move to the new bounds
+                previous = new long[0];
+                anchorX = (long) Math.floor(minX);
+                anchorY = (long) Math.floor(minY);
+                anchorZ = (long) Math.floor(minZ);
+            }
+            long[] updatedKeys = new long[updated.size()];
+            for (int index = 0; index < updatedKeys.length; index++) {
+                long key = key(updated.getX(index), updated.getY(index), updated.getZ(index));
+                updatedKeys[index] = key;
+                if (Arrays.binarySearch(previous, key) < 0) {
+                    batch.add(template, updated.getX(index), updated.getY(index), updated.getZ(index));
+                }
+            }
+            Arrays.sort(updatedKeys);
+            keys = updatedKeys;
+            points = updated;
+            if (cursor >= updated.size()) {
+                cursor = 0;
+            }
+        }
+
+        private boolean inRange(double x, double y, double z) {
+            double limit = (KEY_LIMIT - 1) / KEY_SCALE;
+            return Math.abs(x) < limit && Math.abs(y) < limit && Math.abs(z) < limit;
+        }
+
+        private long key(double x, double y, double z) {
+            long keyX = Math.round((x - anchorX) * KEY_SCALE) & 0x1FFFFF;
+            long keyY = Math.round((y - anchorY) * KEY_SCALE) & 0x1FFFFF;
+            long keyZ = Math.round((z - anchorZ) * KEY_SCALE) & 0x1FFFFF;
+            return keyX << 42 | keyY << 21 | keyZ;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.entity.Player;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes a particle packet once and writes the encoded bytes to the connection of every receiver
+ * <p>
+ * Without broadcasting, the encoder of every connection serializes the same packet again. The bytes are produced by the vanilla encoder of the first receiver and only written to receivers which use the same encoder,
+ * receivers with a replaced encoder (e.g. by protocol translation plugins) get the packet the regular way
+ * <p>
+ * <b>Note:</b> Broadcasting is disabled by default, packets written this way are not seen by plugins which intercept packet objects
+ */
+public final class PacketBroadcaster {
+    private static final String ENCODER = "encoder";
+    private static volatile boolean enabled;
+    private static volatile boolean initialized;
+    private static volatile boolean supported;
+    private static Class<?> encoderClass;
+    private static Method pipeline;
+    private static Method context;
+    private static Method handler;
+    private static Method alloc;
+    private static Method buffer;
+    private static Method encode;
+    private static Method duplicate;
+    private static Method retain;
+    private static Method release;
+    private static Method writeAndFlush;
+
+    // Prevent accidental construction
+    private PacketBroadcaster() {
+    }
+
+    /**
+     * Determine if packets sent to several players are encoded once
+     *
+     * @return Whether broadcasting is enabled or not
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables broadcasting
+     *
+     * @param enabled Whether packets sent to several players are encoded once or not
+     */
+    public static void setEnabled(boolean enabled) {
+        PacketBroadcaster.enabled = enabled;
+    }
+
+    /**
+     * Determine if broadcasting works on this server, which is only known after the first broadcast
+     *
+     * @return Whether broadcasting is supported or not
+     */
+    public static boolean isSupported() {
+        return !initialized || supported;
+    }
+
+    /**
+     * Encodes a packet once and writes it to the players
+     *
+     * @param packet  Packet to send
+     * @param players Receivers of the packet
+     * @return The players which did not receive the packet and have to be sent it the regular way
+     */
+    static List<Player> broadcast(Object packet, List<Player> players) {
+        if (!enabled || players.size() < 2 || !initialize()) {
+            return players;
+        }
+        long start = ReflectionProfiler.start();
+        List<Player> remaining = null;
+        Object encoded = null;
+        int index = 0;
+        try {
+            for (; index < players.size(); index++) {
+                Player player = players.get(index);
+                Object channel = ParticlePacket.getChannel(player);
+                Object encoderContext = channel == null ? null : context.invoke(pipeline.invoke(channel), ENCODER);
+                Object encoder = encoderContext == null ? null : handler.invoke(encoderContext);
+                if (encoder == null || encoder.getClass() != encoderClass) {
+                    if (remaining == null) {
+                        remaining = new ArrayList<>();
+                    }
+                    remaining.add(player);
+                    continue;
+                }
+                if (encoded == null) {
+                    encoded = buffer.invoke(alloc.invoke(encoderContext));
+                    encode.invoke(encoder, encoderContext, packet, encoded);
+                }
+                // Duplicates share the reference count of the buffer, the channel releases its reference after writing
+                writeAndFlush.invoke(channel, retain.invoke(duplicate.invoke(encoded)));
+            }
+        } catch (Exception exception) {
+            // Broadcasting is given up for good, the players which were not reached yet get the packet the regular way
+            supported = false;
+            exception.printStackTrace();
+            if (remaining == null) {
+                remaining = new ArrayList<>();
+            }
+            remaining.addAll(players.subList(index, players.size()));
+            return remaining;
+        } finally {
+            if (encoded != null) {
+                try {
+                    release.invoke(encoded);
+                } catch (Exception ignored) {
+                }
+            }
+            ReflectionProfiler.record("PacketBroadcaster#broadcast", start);
+        }
+        return remaining == null ? Collections.<Player>emptyList() : remaining;
+    }
+
+    /**
+     * Resolves the netty members used for broadcasting
+     *
+     * @return Whether broadcasting is supported or not
+     */
+    private static boolean initialize() {
+        if (initialized) {
+            return supported;
+        }
+        synchronized (PacketBroadcaster.class) {
+            if (initialized) {
+                return supported;
+            }
+            try {
+                Class<?> channelClass = ParticlePacket.getChannelClass();
+                if (channelClass != null) {
+                    encoderClass = ReflectionUtils.PackageType.MINECRAFT_SERVER.getClass("PacketEncoder");
+                    pipeline = channelClass.getMethod("pipeline");
+                    context = pipeline.getReturnType().getMethod("context", String.class);
+                    Class<?> contextClass = context.getReturnType();
+                    handler = contextClass.getMethod("handler");
+                    alloc = contextClass.getMethod("alloc");
+                    buffer = alloc.getReturnType().getMethod("buffer");
+                    Class<?> bufferClass = buffer.getReturnType();
+                    duplicate = bufferClass.getMethod("duplicate");
+                    retain = bufferClass.getMethod("retain");
+                    release = bufferClass.getMethod("release");
+                    writeAndFlush = channelClass.getMethod("writeAndFlush", Object.class);
+                    encode = findEncode(encoderClass, contextClass, bufferClass);
+                    supported = encode != null;
+                }
+            } catch (Exception exception) {
+                supported = false;
+            }
+            initialized = true;
+            return supported;
+        }
+    }
+
+    /**
+     * Returns the encode method of the encoder, which is declared as the bridge of the obfuscated implementation
+     */
+    private static Method findEncode(Class<?> encoderClass, Class<?> contextClass, Class<?> bufferClass) {
+        for (Class<?> current = encoderClass; current != null; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                Class<?>[] parameters = method.getParameterTypes();
+                if (parameters.length == 3 && parameters[0] == contextClass && parameters[2] == bufferClass && method.getReturnType() == void.class && !Modifier.isAbstract(method.getModifiers())) {
+                    method.setAccessible(true);
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+}
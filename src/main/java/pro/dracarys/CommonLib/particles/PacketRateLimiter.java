@@ -0,0 +1,428 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the particle packets a single player receives through {@link ParticleEffect.ParticlePacket#sendTo(org.bukkit.Location, Player)} with a token bucket per player
+ * <p>
+ * Every player may receive a burst of packets at once, after that packets are let through at the configured rate. Packets beyond the limit are handled according to the {@link Overflow} mode
+ * <p>
+ * <b>Note:</b> The limiter is disabled by default. Packets of a {@link ParticleBatch} are exempt, which includes the {@link ParticleScheduler}, the {@link EffectRegistry}, {@link ParticleReplay}s and the {@link OutlineVisualizer}.
+ * A batch writes all packets of a player at once, so frames which need a limit should be queued on the {@link ParticleScheduler} whose packet budget applies per tick
+ */
+public final class PacketRateLimiter implements Listener {
+    private static final PacketRateLimiter instance = new PacketRateLimiter();
+    private final Map<UUID, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private volatile boolean enabled;
+    private volatile boolean active;
+    private volatile double rate = 400;
+    private volatile double burst = 200;
+    private volatile int maxPending = 256;
+    private volatile Overflow overflow = Overflow.DROP;
+
+    // Prevent accidental construction
+    private PacketRateLimiter() {
+    }
+
+    public static PacketRateLimiter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers the listener of the limiter and starts the task which sends coalesced and deferred packets
+     *
+     * @param plugin Plugin which owns the listener and the task
+     */
+    public void enable(Plugin plugin) {
+        if (active) {
+            return;
+        }
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+            @Override
+            public void run() {
+                flushPending();
+            }
+        }, 1, 1);
+        active = true;
+    }
+
+    /**
+     * Determine if packets are limited
+     *
+     * @return Whether the limiter is enabled or not
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the limiter, disabling it discards all pending packets
+     *
+     * @param enabled Whether packets are limited or not
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            buckets.clear();
+        }
+    }
+
+    /**
+     * Sets the rate at which a player receives packets once its burst is used up
+     *
+     * @param packetsPerSecond Packets per second
+     * @throws IllegalArgumentException If the rate is not positive
+     */
+    public void setRate(double packetsPerSecond) throws IllegalArgumentException {
+        if (packetsPerSecond <= 0) {
+            throw new IllegalArgumentException("The rate is not positive");
+        }
+        rate = packetsPerSecond;
+    }
+
+    /**
+     * Sets the amount of packets a player can receive at once
+     *
+     * @param packets Burst size
+     * @throws IllegalArgumentException If the burst is lower than 1
+     */
+    public void setBurst(double packets) throws IllegalArgumentException {
+        if (packets < 1) {
+            throw new IllegalArgumentException("The burst is lower than 1");
+        }
+        burst = packets;
+    }
+
+    /**
+     * Sets how packets beyond the limit are handled
+     *
+     * @param overflow Overflow mode
+     */
+    public void setOverflow(Overflow overflow) {
+        this.overflow = overflow;
+    }
+
+    /**
+     * Sets the amount of packets which can be pending per player in the {@link Overflow#COALESCE} and {@link Overflow#DEFER} modes, further packets are dropped
+     *
+     * @param packets Maximum amount of pending packets
+     * @throws IllegalArgumentException If the amount is lower than 1
+     */
+    public void setMaxPending(int packets) throws IllegalArgumentException {
+        if (packets < 1) {
+            throw new IllegalArgumentException("The maximum amount of pending packets is lower than 1");
+        }
+        maxPending = packets;
+    }
+
+    /**
+     * Returns the amount of packets which were let through
+     *
+     * @return The amount of allowed packets
+     */
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    /**
+     * Returns the amount of packets which were dropped
+     *
+     * @return The amount of dropped packets
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the amount of packets which were replaced by a newer packet of the same effect and attributes at about the same position
+     *
+     * @return The amount of coalesced packets
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the amount of packets which were sent later than requested
+     *
+     * @return The amount of deferred packets
+     */
+    public long getDeferred() {
+        return deferred.sum();
+    }
+
+    /**
+     * Returns the amount of packets which were dropped for a single player
+     *
+     * @param player Player to check
+     * @return The amount of dropped packets
+     */
+    public long getDropped(Player player) {
+        Bucket bucket = buckets.get(player.getUniqueId());
+        if (bucket == null) {
+            return 0;
+        }
+        // The count is written under the lock of the bucket
+        synchronized (bucket) {
+            return bucket.dropped;
+        }
+    }
+
+    /**
+     * Resets all metrics
+     */
+    public void resetMetrics() {
+        allowed.reset();
+        dropped.reset();
+        coalesced.reset();
+        deferred.reset();
+    }
+
+    /**
+     * Takes a token for a packet sent to a player, packets beyond the limit are handled according to the overflow mode
+     *
+     * @param player   Receiver of the packet
+     * @param particle Particle packet which is sent
+     * @param center   Center location of the effect
+     * @param packet   Packet which is sent, or a task displaying the effect if it is displayed natively
+     * @return Whether the packet may be sent right away or not
+     */
+    boolean tryAcquire(Player player, ParticlePacket particle, Location center, Object packet) {
+        Bucket bucket = buckets.get(player.getUniqueId());
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(player.getUniqueId(), uuid -> new Bucket(player, burst));
+        }
+        synchronized (bucket) {
+            bucket.refill(rate, burst);
+            // Pending packets go first, so a new packet must not overtake them
+            if (bucket.pendingSize() == 0 && bucket.tokens >= 1) {
+                bucket.tokens--;
+                allowed.increment();
+                return true;
+            }
+            switch (overflow) {
+                case COALESCE:
+                    double size = ParticleCoalescer.getInstance().getBucketSize();
+                    bucket.coalesce(new PendingKey(particle, (long) Math.floor(center.getX() / size), (long) Math.floor(center.getY() / size), (long) Math.floor(center.getZ() / size)), packet, maxPending);
+                    break;
+                case DEFER:
+                    if (bucket.defer(packet, maxPending)) {
+                        deferred.increment();
+                        break;
+                    }
+                    // The queue is full, fall through and drop the packet
+                default:
+                    bucket.dropped++;
+                    dropped.increment();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sends pending packets for which tokens became available
+     */
+    private void flushPending() {
+        if (!enabled) {
+            return;
+        }
+        for (Bucket bucket : buckets.values()) {
+            Object[] packets;
+            synchronized (bucket) {
+                if (bucket.pendingSize() == 0) {
+                    continue;
+                }
+                bucket.refill(rate, burst);
+                packets = bucket.poll((int) bucket.tokens);
+                bucket.tokens -= packets.length;
+            }
+            if (packets.length > 0) {
+                allowed.add(packets.length);
+                try {
+                    // Natively displayed effects are pending as tasks, the others as packets
+                    int count = 0;
+                    for (Object packet : packets) {
+                        if (packet instanceof Runnable) {
+                            ((Runnable) packet).run();
+                        } else {
+                            packets[count++] = packet;
+                        }
+                    }
+                    if (count > 0) {
+                        ParticleEffect.ParticlePacket.sendPackets(bucket.player, packets, count);
+                    }
+                } catch (RuntimeException exception) {
+                    exception.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        buckets.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Represents how packets beyond the limit are handled
+     */
+    public enum Overflow {
+        /**
+         * The packet is dropped
+         */
+        DROP,
+        /**
+         * The packet is sent once tokens are available, replacing a pending packet of the same effect and attributes whose center falls into the same position bucket of the {@link ParticleCoalescer}
+         */
+        COALESCE,
+        /**
+         * The packet is queued and sent once tokens are available
+         */
+        DEFER
+    }
+
+    /**
+     * Represents the token bucket and the pending packets of a single player
+     */
+    private static final class Bucket {
+        private final Player player;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private long dropped;
+        private Map<PendingKey, Object> coalescing;
+        private ArrayDeque<Object> deferring;
+
+        Bucket(Player player, double tokens) {
+            this.player = player;
+            this.tokens = tokens;
+        }
+
+        void refill(double rate, double burst) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1_000_000_000D);
+            lastRefill = now;
+        }
+
+        int pendingSize() {
+            return (coalescing == null ? 0 : coalescing.size()) + (deferring == null ? 0 : deferring.size());
+        }
+
+        /**
+         * Stores a packet as the pending packet of its key, if too many packets are pending the oldest coalesced packet or else the packet itself is dropped
+         */
+        void coalesce(PendingKey key, Object packet, int maxPending) {
+            if (coalescing == null) {
+                coalescing = new LinkedHashMap<>();
+            }
+            // Re-inserting moves the key to the end, so the oldest packet is sent first
+            if (coalescing.remove(key) != null) {
+                instance.coalesced.increment();
+            } else if (pendingSize() >= maxPending) {
+                dropped++;
+                instance.dropped.increment();
+                // Deferred packets are not evicted, so with none coalesced the new packet is the one dropped
+                if (coalescing.isEmpty()) {
+                    return;
+                }
+                coalescing.remove(coalescing.keySet().iterator().next());
+            }
+            coalescing.put(key, packet);
+        }
+
+        /**
+         * Queues a packet
+         *
+         * @return Whether the packet was queued or not
+         */
+        boolean defer(Object packet, int maxPending) {
+            if (deferring == null) {
+                deferring = new ArrayDeque<>();
+            }
+            if (pendingSize() >= maxPending) {
+                return false;
+            }
+            deferring.add(packet);
+            return true;
+        }
+
+        /**
+         * Removes up to the given amount of pending packets, deferred packets are older than coalesced ones
+         */
+        Object[] poll(int amount) {
+            Object[] packets = new Object[Math.min(amount, pendingSize())];
+            int index = 0;
+            while (index < packets.length && deferring != null && !deferring.isEmpty()) {
+                packets[index++] = deferring.poll();
+            }
+            if (coalescing != null) {
+                Iterator<Object> iterator = coalescing.values().iterator();
+                while (index < packets.length && iterator.hasNext()) {
+                    packets[index++] = iterator.next();
+                    iterator.remove();
+                }
+            }
+            return packets;
+        }
+    }
+
+    /**
+     * Represents the attributes and the position bucket of a pending packet, packets which could be merged by the {@link ParticleCoalescer} have equal keys
+     */
+    private static final class PendingKey {
+        private final ParticlePacket particle;
+        private final long x;
+        private final long y;
+        private final long z;
+        private final int hash;
+
+        PendingKey(ParticlePacket particle, long x, long y, long z) {
+            this.particle = particle;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            int result = particle.getEffect().hashCode();
+            result = 31 * result + Long.hashCode(x);
+            result = 31 * result + Long.hashCode(y);
+            result = 31 * result + Long.hashCode(z);
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey other = (PendingKey) object;
+            return x == other.x && y == other.y && z == other.z && particle.canMerge(other.particle);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticleProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Represents a frame of particle effects in a single world which are sent together
+ * <p>
+ * Recipients are resolved once for the whole batch, every packet is built once and all packets of a player are written to its connection before it is flushed a single time
+ * <p>
+ * <b>Note:</b> Batches are not thread safe and should be filled and sent from the same thread. Their packets bypass the {@link PacketRateLimiter} and the {@link ParticleCoalescer}, use the {@link ParticleScheduler} to limit the packets per tick
+ */
+public final class ParticleBatch {
+    private static final int INITIAL_CAPACITY = 64;
+    private final World world;
+    private ParticleTemplate[] templates = new ParticleTemplate[INITIAL_CAPACITY];
+    // Packed x, y and z coordinates of the entries
+    private double[] points = new double[INITIAL_CAPACITY * 3];
+    private int size;
+    private LodPolicy lodPolicy;
+    private boolean captured = true;
+
+    /**
+     * Construct a new particle batch
+     *
+     * @param world World in which the effects of this batch are displayed
+     */
+    public ParticleBatch(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Returns the world of this batch
+     *
+     * @return The world
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Returns the amount of entries in this batch
+     *
+     * @return The amount of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determine if this batch has no entries
+     *
+     * @return Whether the batch is empty or not
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the level of detail policy of this batch
+     *
+     * @return The policy or <code>null</code> if the {@link ParticleEffect#getLodPolicy() global policy} applies
+     */
+    public LodPolicy getLodPolicy() {
+        return lodPolicy;
+    }
+
+    /**
+     * Sets the level of detail policy of this batch, which thins out the points, lowers the amount of particles or skips frames for distant players
+     *
+     * @param policy Policy to apply or <code>null</code> to use the {@link ParticleEffect#getLodPolicy() global policy}
+     * @return This batch
+     */
+    public ParticleBatch setLodPolicy(LodPolicy policy) {
+        this.lodPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Adds a particle effect at the given location to this batch
+     *
+     * @param template Template of the effect
+     * @param center   Center location of the effect
+     * @return This batch
+     * @throws IllegalArgumentException If the location is in another world or the particle effect requires water and none is at the center location
+     */
+    public ParticleBatch add(ParticleTemplate template, Location center) throws IllegalArgumentException {
+        if (center.getWorld() != world) {
+            throw new IllegalArgumentException("The location is not in the world of this batch");
+        }
+        template.checkWater(center);
+        append(template, center.getX(), center.getY(), center.getZ());
+        return this;
+    }
+
+    /**
+     * Adds a particle effect at the given coordinates to this batch
+     *
+     * @param template Template of the effect
+     * @param x        Center x-coordinate of the effect
+     * @param y        Center y-coordinate of the effect
+     * @param z        Center z-coordinate of the effect
+     * @return This batch
+     * @throws IllegalArgumentException If the particle effect requires water and none is at the center location
+     */
+    public ParticleBatch add(ParticleTemplate template, double x, double y, double z) throws IllegalArgumentException {
+        if (template.getEffect().hasProperty(ParticleProperty.REQUIRES_WATER)) {
+            template.checkWater(new Location(world, x, y, z));
+        }
+        append(template, x, y, z);
+        return this;
+    }
+
+    /**
+     * Adds a particle effect at every point of a buffer to this batch, the points are transformed straight into the batch without creating a location for each of them
+     *
+     * @param template  Template of the effect
+     * @param points    Points of the shape
+     * @param transform Transform which places the points in the world
+     * @return This batch
+     * @throws IllegalArgumentException If the particle effect requires water and none is at one of the points
+     */
+    public ParticleBatch add(ParticleTemplate template, PointBuffer points, Transform transform) throws IllegalArgumentException {
+        int count = points.size();
+        if (template.getEffect().hasProperty(ParticleProperty.REQUIRES_WATER)) {
+            PointBuffer transformed = transform.apply(points);
+            for (int index = 0; index < count; index++) {
+                add(template, transformed.getX(index), transformed.getY(index), transformed.getZ(index));
+            }
+            return this;
+        }
+        ensureCapacity(size + count);
+        Arrays.fill(templates, size, size + count, template);
+        transform.apply(points.getPoints(), 0, this.points, size * 3, count);
+        size += count;
+        return this;
+    }
+
+    /**
+     * Removes all entries from this batch so it can be reused for the next frame
+     */
+    public void clear() {
+        Arrays.fill(templates, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Sends every entry of this batch to all players within a certain range of it
+     *
+     * @param range Range of the visibility
+     * @return The amount of packets sent
+     * @throws IllegalArgumentException If the range is lower than 1
+     */
+    public int send(double range) throws IllegalArgumentException {
+        if (range < 1) {
+            throw new IllegalArgumentException("The range is lower than 1");
+        }
+        if (size == 0) {
+            return 0;
+        }
+        capture();
+        return send(getRecipients(range), range);
+    }
+
+    /**
+     * Sends every entry of this batch to the specified players
+     *
+     * @param players Receivers of the effects
+     * @return The amount of packets sent
+     */
+    public int send(List<Player> players) {
+        if (size == 0) {
+            return 0;
+        }
+        capture();
+        return send(players, -1);
+    }
+
+    /**
+     * Sends every entry of this batch to the specified players
+     *
+     * @param players Receivers of the effects
+     * @return The amount of packets sent
+     * @see #send(List)
+     */
+    public int send(Player... players) {
+        return send(Arrays.asList(players));
+    }
+
+    /**
+     * Sends every entry of this batch to all players within a certain range of it, building and writing the packets on the {@link ParticleExecutor}
+     * <p>
+     * The receivers are determined on the calling thread and the entries are copied, so the batch can be reused right away.
+     * A batch holding natively displayed effects is sent on the calling thread, since spawning them calls the Bukkit API, and so is every batch once the executor is shut down
+     *
+     * @param range Range of the visibility
+     * @throws IllegalArgumentException If the range is lower than 1
+     * @see #send(double)
+     */
+    public void sendAsync(double range) throws IllegalArgumentException {
+        if (range < 1) {
+            throw new IllegalArgumentException("The range is lower than 1");
+        }
+        if (size != 0) {
+            capture();
+            sendAsync(getRecipients(range), range);
+        }
+    }
+
+    /**
+     * Sends every entry of this batch to the specified players, building and writing the packets on the {@link ParticleExecutor}
+     *
+     * @param players Receivers of the effects
+     * @see #sendAsync(double)
+     */
+    public void sendAsync(List<Player> players) {
+        if (size != 0) {
+            capture();
+            sendAsync(new ArrayList<>(players), -1);
+        }
+    }
+
+    /**
+     * Excludes this batch from recordings, a replayed batch would otherwise be recorded again
+     *
+     * @return This batch
+     */
+    ParticleBatch skipCapture() {
+        captured = false;
+        return this;
+    }
+
+    /**
+     * Returns the template of an entry
+     *
+     * @param index Index of the entry
+     * @return The template
+     */
+    ParticleTemplate getTemplate(int index) {
+        return templates[index];
+    }
+
+    /**
+     * Returns the coordinates of the entries without copying them, they must not be modified
+     *
+     * @return The coordinates
+     */
+    PointBuffer getPoints() {
+        return new PointBuffer(points, size);
+    }
+
+    private void capture() {
+        if (captured) {
+            ParticleRecorder.capture(world, templates, points, size);
+        }
+    }
+
+    private void append(ParticleTemplate template, double x, double y, double z) {
+        if (size == templates.length) {
+            ensureCapacity(size + 1);
+        }
+        templates[size] = template;
+        int offset = size * 3;
+        points[offset] = x;
+        points[offset + 1] = y;
+        points[offset + 2] = z;
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= templates.length) {
+            return;
+        }
+        int length = Math.max(templates.length << 1, capacity);
+        templates = Arrays.copyOf(templates, length);
+        points = Arrays.copyOf(points, length * 3);
+    }
+
+    /**
+     * Returns all players in the world of this batch which are in range of its bounding box
+     *
+     * @param range Range around the bounding box
+     * @return The possible receivers
+     */
+    private List<Player> getRecipients(double range) {
+        return getRecipients(null, range);
+    }
+
+    /**
+     * Returns all players in the world of this batch which are in range of its bounding box
+     *
+     * @param candidates Players to check or <code>null</code> to look them up through the {@link PlayerIndex} or among the online players
+     * @param range      Range around the bounding box
+     * @return The possible receivers
+     */
+    List<Player> getRecipients(Iterable<? extends Player> candidates, double range) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int offset = 0, length = size * 3; offset < length; offset += 3) {
+            minX = Math.min(minX, points[offset]);
+            maxX = Math.max(maxX, points[offset]);
+            minY = Math.min(minY, points[offset + 1]);
+            maxY = Math.max(maxY, points[offset + 1]);
+            minZ = Math.min(minZ, points[offset + 2]);
+            maxZ = Math.max(maxZ, points[offset + 2]);
+        }
+        double halfX = (maxX - minX) / 2, halfY = (maxY - minY) / 2, halfZ = (maxZ - minZ) / 2;
+        Location center = new Location(world, minX + halfX, minY + halfY, minZ + halfZ);
+        double radius = Math.sqrt(halfX * halfX + halfY * halfY + halfZ * halfZ) + range;
+        if (candidates == null) {
+            if (PlayerIndex.getInstance().isActive()) {
+                return PlayerIndex.getInstance().getNearbyPlayers(center, radius);
+            }
+            candidates = Bukkit.getOnlinePlayers();
+        }
+        List<Player> players = new ArrayList<>();
+        Location playerLocation = new Location(world, 0, 0, 0);
+        double squared = radius * radius;
+        for (Player player : candidates) {
+            player.getLocation(playerLocation);
+            if (playerLocation.getWorld() == world && playerLocation.distanceSquared(center) <= squared) {
+                players.add(player);
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Sends the entries of this batch to the players, building each packet at most once
+     *
+     * @param players Receivers of the effects
+     * @param range   Range of the visibility or <code>-1</code> to send every entry regardless of the distance
+     * @return The amount of packets sent
+     */
+    private int send(List<Player> players, double range) {
+        if (players.isEmpty()) {
+            return 0;
+        }
+        return write(players, snapshot(players), range, range > 256 || (range < 0 && isLongDistance(players)));
+    }
+
+    /**
+     * Sends the entries of this batch on the particle executor, only the receivers and their positions are determined on the calling thread
+     *
+     * @param players Receivers of the effects
+     * @param range   Range of the visibility or <code>-1</code> to send every entry regardless of the distance
+     */
+    private void sendAsync(final List<Player> players, final double range) {
+        if (players.isEmpty()) {
+            return;
+        }
+        final double[] positions = snapshot(players);
+        final boolean longDistance = range > 256 || (range < 0 && isLongDistance(players));
+        if (ParticleExecutor.isShutdown() || hasNative(longDistance)) {
+            write(players, positions, range, longDistance);
+            return;
+        }
+        // The batch may be cleared and refilled right away, so the executor works on a copy
+        final ParticleBatch copy = copy();
+        try {
+            ParticleExecutor.execute(() -> copy.write(players, positions, range, longDistance));
+        } catch (RejectedExecutionException exception) {
+            // The executor was shut down in the meantime, so the entries are written right away
+            write(players, positions, range, longDistance);
+        }
+    }
+
+    /**
+     * Returns the positions of the players, packed like the points of this batch
+     *
+     * @param players Players to look up
+     * @return The positions, the x-coordinate is <code>NaN</code> for players in another world
+     */
+    private double[] snapshot(List<Player> players) {
+        double[] positions = new double[players.size() * 3];
+        Location playerLocation = new Location(world, 0, 0, 0);
+        for (int index = 0, offset = 0; index < players.size(); index++, offset += 3) {
+            players.get(index).getLocation(playerLocation);
+            positions[offset] = playerLocation.getWorld() == world ? playerLocation.getX() : Double.NaN;
+            positions[offset + 1] = playerLocation.getY();
+            positions[offset + 2] = playerLocation.getZ();
+        }
+        return positions;
+    }
+
+    private boolean hasNative(boolean longDistance) {
+        ParticleTemplate previous = null;
+        for (int index = 0; index < size; index++) {
+            ParticleTemplate template = templates[index];
+            // Entries of a shape share their template, so each run is checked once
+            if (template != previous && template.isNative(longDistance)) {
+                return true;
+            }
+            previous = template;
+        }
+        return false;
+    }
+
+    private ParticleBatch copy() {
+        ParticleBatch copy = new ParticleBatch(world);
+        copy.templates = Arrays.copyOf(templates, size);
+        copy.points = Arrays.copyOf(points, size * 3);
+        copy.size = size;
+        copy.lodPolicy = lodPolicy;
+        return copy;
+    }
+
+    /**
+     * Builds the packets of this batch and writes them to the connections of the players
+     *
+     * @param players      Receivers of the effects
+     * @param positions    Positions of the receivers
+     * @param range        Range of the visibility or <code>-1</code> to send every entry regardless of the distance
+     * @param longDistance Indicates whether the maximum distance is increased from 256 to 65536
+     * @return The amount of packets sent
+     */
+    private int write(List<Player> players, double[] positions, double range, boolean longDistance) {
+        int sent = 0;
+        // The global policy only applies to range sends, like it does for single effects
+        LodPolicy lod = lodPolicy != null ? lodPolicy : range >= 0 ? ParticleEffect.getLodPolicy() : null;
+        // Packets are built per entry and tier, the full detail packet of an entry is stored first
+        int stride = lod == null ? 1 : lod.size() + 1;
+        long frame = LodPolicy.currentFrame();
+        Object[] packets = new Object[size * stride];
+        double squared = range * range;
+        for (int playerIndex = 0; playerIndex < players.size(); playerIndex++) {
+            Player player = players.get(playerIndex);
+            double playerX = positions[playerIndex * 3], playerY = positions[playerIndex * 3 + 1], playerZ = positions[playerIndex * 3 + 2];
+            if (Double.isNaN(playerX)) {
+                continue;
+            }
+            int seed = player.getUniqueId().hashCode();
+            Object[] queue = new Object[size];
+            int count = 0;
+            for (int index = 0; index < size; index++) {
+                int offset = index * 3;
+                double x = points[offset], y = points[offset + 1], z = points[offset + 2];
+                double dx = x - playerX, dy = y - playerY, dz = z - playerZ;
+                double distanceSquared = dx * dx + dy * dy + dz * dz;
+                if (range >= 0 && distanceSquared > squared) {
+                    continue;
+                }
+                int tierIndex = lod == null ? -1 : lod.indexOf(distanceSquared);
+                LodPolicy.Tier tier = tierIndex < 0 ? null : lod.tier(tierIndex);
+                if (tier != null && (!tier.keepsPoint(index) || tier.skipsFrame(frame, seed))) {
+                    continue;
+                }
+                int slot = index * stride + tierIndex + 1;
+                Object packet = packets[slot];
+                if (packet == null) {
+                    ParticlePacket particlePacket = templates[index].newPacket(longDistance);
+                    if (tier != null) {
+                        particlePacket = particlePacket.reduce(tier);
+                    }
+                    // Natively displayed effects keep the particle packet, there is no packet to build
+                    packet = packets[slot] = particlePacket.isNative() ? particlePacket : particlePacket.getPacket(x, y, z);
+                }
+                if (packet instanceof ParticlePacket) {
+                    ((ParticlePacket) packet).spawn(player, x, y, z);
+                    sent++;
+                    continue;
+                }
+                queue[count++] = packet;
+            }
+            if (count > 0) {
+                // The queue is handed to the connection of the player, so each player gets its own array
+                ParticlePacket.sendPackets(player, queue, count);
+                sent += count;
+            }
+        }
+        return sent;
+    }
+
+    private boolean isLongDistance(List<Player> players) {
+        double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        double minZ = Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int offset = 0, length = size * 3; offset < length; offset += 3) {
+            minX = Math.min(minX, points[offset]);
+            maxX = Math.max(maxX, points[offset]);
+            minY = Math.min(minY, points[offset + 1]);
+            maxY = Math.max(maxY, points[offset + 1]);
+            minZ = Math.min(minZ, points[offset + 2]);
+            maxZ = Math.max(maxZ, points[offset + 2]);
+        }
+        Location corner = new Location(world, 0, 0, 0);
+        for (int index = 0; index < 8; index++) {
+            corner.setX((index & 1) == 0 ? minX : maxX);
+            corner.setY((index & 2) == 0 ? minY : maxY);
+            corner.setZ((index & 4) == 0 ? minZ : maxZ);
+            if (ParticleEffect.isLongDistance(corner, players)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,238 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges identical particle packets which are sent to the same player in the same tick
+ * <p>
+ * Packets of the same effect with equal attributes and data whose centers fall into the same position bucket are combined into one packet with the summed amount.
+ * Single directional or colored particles (amount 0) cannot be combined, so duplicates of them are dropped. The merged packets are sent by a repeating task at the start of the next tick
+ * <p>
+ * <b>Note:</b> Coalescing is disabled by default, it applies to {@link ParticlePacket#sendTo(Location, Player)} and everything built on it but not to {@link ParticleBatch}es
+ */
+public final class ParticleCoalescer {
+    private static final ParticleCoalescer instance = new ParticleCoalescer();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final Object lock = new Object();
+    private Map<Key, List<Entry>> pending = new HashMap<>();
+    private volatile boolean enabled;
+    private volatile boolean active;
+    private volatile double bucketSize = 0.5;
+
+    // Prevent accidental construction
+    private ParticleCoalescer() {
+    }
+
+    public static ParticleCoalescer getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts the repeating task which sends the packets merged during the previous tick
+     *
+     * @param plugin Plugin which owns the task
+     */
+    public void enable(Plugin plugin) {
+        if (active) {
+            return;
+        }
+        Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, 1, 1);
+        active = true;
+    }
+
+    /**
+     * Determine if packets are merged
+     *
+     * @return Whether the coalescer is enabled or not
+     */
+    public boolean isEnabled() {
+        return enabled && active;
+    }
+
+    /**
+     * Enables or disables the coalescer, packets which are pending when it is disabled are still sent on the next tick
+     *
+     * @param enabled Whether packets are merged or not
+     */
+    public void setEnabled(boolean enabled) {
+        // The repeating task keeps running, so the pending packets are flushed on the main thread
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the size of the position buckets
+     *
+     * @return The edge length of a bucket
+     */
+    public double getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * Sets the size of the position buckets, packets whose centers fall into the same bucket are merged
+     *
+     * @param size Edge length of a bucket
+     * @throws IllegalArgumentException If the size is not positive
+     */
+    public void setBucketSize(double size) throws IllegalArgumentException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The bucket size is not positive");
+        }
+        bucketSize = size;
+    }
+
+    /**
+     * Returns the amount of packets which were merged into another packet
+     *
+     * @return The amount of merged packets
+     */
+    public long getMerged() {
+        return merged.sum();
+    }
+
+    /**
+     * Returns the amount of duplicate packets which were dropped
+     *
+     * @return The amount of dropped duplicates
+     */
+    public long getDeduplicated() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * Queues a packet for the next tick, merging it with an identical pending packet
+     *
+     * @param packet Particle packet to send
+     * @param center Center location of the effect
+     * @param player Receiver of the packet
+     * @return Whether the packet was queued or not
+     */
+    boolean offer(ParticlePacket packet, Location center, Player player) {
+        double size = bucketSize;
+        Key key = new Key(player.getUniqueId(), packet.getEffect(), (long) Math.floor(center.getX() / size), (long) Math.floor(center.getY() / size), (long) Math.floor(center.getZ() / size));
+        synchronized (lock) {
+            List<Entry> entries = pending.get(key);
+            if (entries == null) {
+                entries = new ArrayList<>(1);
+                pending.put(key, entries);
+            }
+            for (Entry entry : entries) {
+                if (!entry.packet.canMerge(packet)) {
+                    continue;
+                }
+                if (packet.getAmount() == 0 || entry.amount == 0) {
+                    deduplicated.increment();
+                } else {
+                    entry.amount += packet.getAmount();
+                    merged.increment();
+                }
+                return true;
+            }
+            entries.add(new Entry(packet, center.clone(), player));
+            return true;
+        }
+    }
+
+    /**
+     * Sends all pending packets
+     */
+    private void flush() {
+        Map<Key, List<Entry>> flushed;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            flushed = pending;
+            pending = new HashMap<>();
+        }
+        for (List<Entry> entries : flushed.values()) {
+            for (Entry entry : entries) {
+                if (!entry.player.isOnline()) {
+                    continue;
+                }
+                try {
+                    entry.packet.withAmount(entry.amount).sendNow(entry.center, entry.player);
+                } catch (RuntimeException exception) {
+                    exception.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Represents a receiver, an effect and a position bucket
+     */
+    private static final class Key {
+        private final UUID player;
+        private final ParticleEffect effect;
+        private final long x;
+        private final long y;
+        private final long z;
+        private final int hash;
+
+        Key(UUID player, ParticleEffect effect, long x, long y, long z) {
+            this.player = player;
+            this.effect = effect;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            int result = player.hashCode();
+            result = 31 * result + effect.hashCode();
+            result = 31 * result + Long.hashCode(x);
+            result = 31 * result + Long.hashCode(y);
+            result = 31 * result + Long.hashCode(z);
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) object;
+            return effect == other.effect && x == other.x && y == other.y && z == other.z && player.equals(other.player);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Represents a pending packet and its combined amount
+     */
+    private static final class Entry {
+        private final ParticlePacket packet;
+        private final Location center;
+        private final Player player;
+        private int amount;
+
+        Entry(ParticlePacket packet, Location center, Player player) {
+            this.packet = packet;
+            this.center = center;
+            this.player = player;
+            this.amount = packet.getAmount();
+        }
+    }
+}
@@ -4,17 +4,28 @@ import org.bukkit.Bukkit;
 import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.util.Vector;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * ParticleEffect Library (Fork) - To be used only for 1.8
@@ -363,17 +374,28 @@ public enum ParticleEffect {
     MOB_APPEARANCE("mobappearance", 41, 8);
 
     private static final Map<String, ParticleEffect> NAME_MAP = new HashMap<String, ParticleEffect>();
-    private static final Map<Integer, ParticleEffect> ID_MAP = new HashMap<Integer, ParticleEffect>();
+    // Fallback for names in another case, compares without allocating a lower case copy
+    private static final Map<String, ParticleEffect> NAME_MAP_IGNORE_CASE = new TreeMap<String, ParticleEffect>(String.CASE_INSENSITIVE_ORDER);
+    private static final ParticleEffect[] ID_TABLE;
+    private static volatile boolean[] supportTable;
+    private static volatile LodPolicy lodPolicy;
     private final String name;
     private final int id;
     private final int requiredVersion;
     private final List<ParticleProperty> properties;
+    private final int propertyMask;
 
-    // Initialize map for quick name and id lookup
+    // Initialize maps and tables for quick name and id lookup
     static {
+        int maxId = 0;
         for (ParticleEffect effect : values()) {
             NAME_MAP.put(effect.name, effect);
-            ID_MAP.put(effect.id, effect);
+            NAME_MAP_IGNORE_CASE.put(effect.name, effect);
+            maxId = Math.max(maxId, effect.id);
+        }
+        ID_TABLE = new ParticleEffect[maxId + 1];
+        for (ParticleEffect effect : values()) {
+            ID_TABLE[effect.id] = effect;
         }
     }
 
@@ -390,6 +412,11 @@ public enum ParticleEffect {
         this.id = id;
         this.requiredVersion = requiredVersion;
         this.properties = Arrays.asList(properties);
+        int mask = 0;
+        for (ParticleProperty property : properties) {
+            mask |= 1 << property.ordinal();
+        }
+        this.propertyMask = mask;
     }
 
     /**
@@ -425,7 +452,7 @@ public enum ParticleEffect {
      * @return Whether it has the property or not
      */
     public boolean hasProperty(ParticleProperty property) {
-        return properties.contains(property);
+        return (propertyMask & (1 << property.ordinal())) != 0;
     }
 
     /**
@@ -434,26 +461,46 @@ public enum ParticleEffect {
      * @return Whether the particle effect is supported or not
      */
     public boolean isSupported() {
-        if (requiredVersion == -1) {
+        // Natively displayed effects do not depend on the version, so the table is only built for the others
+        if (NativeParticleBackend.supports(this)) {
             return true;
         }
-        return ParticlePacket.getVersion() >= requiredVersion;
+        boolean[] table = supportTable;
+        if (table == null) {
+            table = buildSupportTable();
+        }
+        // Effects without a native counterpart are sent through the reflective packet, which newer versions do not have
+        return table[ordinal()] && !NativeParticleBackend.isRequired();
+    }
+
+    /**
+     * Builds the table of the particle effects supported by the server version, it only has to be built once
+     *
+     * @return The table indexed by the ordinal of the effects
+     */
+    private static boolean[] buildSupportTable() {
+        int version = ParticlePacket.getVersion();
+        ParticleEffect[] effects = values();
+        boolean[] table = new boolean[effects.length];
+        for (ParticleEffect effect : effects) {
+            table[effect.ordinal()] = effect.requiredVersion == -1 || version >= effect.requiredVersion;
+        }
+        supportTable = table;
+        return table;
     }
 
     /**
      * Returns the particle effect with the given name
      *
      * @param name Name of the particle effect
-     * @return The particle effect
+     * @return The particle effect or <code>null</code> if there is none with the name
      */
     public static ParticleEffect fromName(String name) {
-        for (Entry<String, ParticleEffect> entry : NAME_MAP.entrySet()) {
-            if (!entry.getKey().equalsIgnoreCase(name)) {
-                continue;
-            }
-            return entry.getValue();
+        if (name == null) {
+            return null;
         }
-        return null;
+        ParticleEffect effect = NAME_MAP.get(name);
+        return effect != null ? effect : NAME_MAP_IGNORE_CASE.get(name);
     }
 
     /**
@@ -463,13 +510,25 @@ public enum ParticleEffect {
      * @return The particle effect
      */
     public static ParticleEffect fromId(int id) {
-        for (Entry<Integer, ParticleEffect> entry : ID_MAP.entrySet()) {
-            if (entry.getKey() != id) {
-                continue;
-            }
-            return entry.getValue();
-        }
-        return null;
+        return id >= 0 && id < ID_TABLE.length ? ID_TABLE[id] : null;
+    }
+
+    /**
+     * Returns the level of detail policy applied when effects are displayed to the players in a range
+     *
+     * @return The policy or <code>null</code> if every player gets the full detail
+     */
+    public static LodPolicy getLodPolicy() {
+        return lodPolicy;
+    }
+
+    /**
+     * Sets the level of detail policy applied when effects are displayed to the players in a range
+     *
+     * @param policy Policy to apply or <code>null</code> to send the full detail to every player
+     */
+    public static void setLodPolicy(LodPolicy policy) {
+        lodPolicy = policy;
     }
 
     /**
@@ -478,7 +537,7 @@ public enum ParticleEffect {
      * @param location Location to check
      * @return Whether water is at this location or not
      */
-    private static boolean isWater(Location location) {
+    static boolean isWater(Location location) {
         Material material = location.getBlock().getType();
         return material.toString().contains("WATER");
     }
@@ -489,11 +548,12 @@ public enum ParticleEffect {
      * @param location Location to check
      * @return Whether the distance exceeds 256 or not
      */
-    private static boolean isLongDistance(Location location, List<Player> players) {
-        String world = location.getWorld().getName();
+    static boolean isLongDistance(Location location, List<Player> players) {
+        World world = location.getWorld();
+        Location playerLocation = new Location(world, 0, 0, 0);
         for (Player player : players) {
-            Location playerLocation = player.getLocation();
-            if (!world.equals(playerLocation.getWorld().getName()) || playerLocation.distanceSquared(location) < 65536) {
+            player.getLocation(playerLocation);
+            if (playerLocation.getWorld() != world || playerLocation.distanceSquared(location) < 65536) {
                 continue;
             }
             return true;
@@ -881,6 +941,126 @@ public enum ParticleEffect {
         display(data, direction, speed, center, Arrays.asList(players));
     }
 
+    /**
+     * Creates a reusable template of this particle effect, which only needs a center location to be displayed
+     *
+     * @param offsetX Maximum distance particles can fly away from the center on the x-axis
+     * @param offsetY Maximum distance particles can fly away from the center on the y-axis
+     * @param offsetZ Maximum distance particles can fly away from the center on the z-axis
+     * @param speed   Display speed of the particles
+     * @param amount  Amount of particles
+     * @return The particle template
+     * @throws ParticleVersionException If the particle effect is not supported by the server version
+     * @throws ParticleDataException    If the particle effect requires additional data
+     * @see ParticleTemplate
+     */
+    public ParticleTemplate createTemplate(float offsetX, float offsetY, float offsetZ, float speed, int amount) throws ParticleVersionException, ParticleDataException {
+        if (!isSupported()) {
+            throw new ParticleVersionException("This particle effect is not supported by your server version");
+        }
+        if (hasProperty(ParticleProperty.REQUIRES_DATA)) {
+            throw new ParticleDataException("This particle effect requires additional data");
+        }
+        return new ParticleTemplate(this, new ParticlePacket(this, offsetX, offsetY, offsetZ, speed, amount, false, null));
+    }
+
+    /**
+     * Creates a reusable template of a single particle which flies into a determined direction
+     *
+     * @param direction Direction of the particle
+     * @param speed     Display speed of the particle
+     * @return The particle template
+     * @throws ParticleVersionException If the particle effect is not supported by the server version
+     * @throws ParticleDataException    If the particle effect requires additional data
+     * @throws IllegalArgumentException If the particle effect is not directional
+     * @see ParticleTemplate
+     */
+    public ParticleTemplate createTemplate(Vector direction, float speed) throws ParticleVersionException, ParticleDataException, IllegalArgumentException {
+        if (!isSupported()) {
+            throw new ParticleVersionException("This particle effect is not supported by your server version");
+        }
+        if (hasProperty(ParticleProperty.REQUIRES_DATA)) {
+            throw new ParticleDataException("This particle effect requires additional data");
+        }
+        if (!hasProperty(ParticleProperty.DIRECTIONAL)) {
+            throw new IllegalArgumentException("This particle effect is not directional");
+        }
+        return new ParticleTemplate(this, new ParticlePacket(this, direction, speed, false, null));
+    }
+
+    /**
+     * Creates a reusable template of a single colored particle
+     *
+     * @param color Color of the particle
+     * @return The particle template
+     * @throws ParticleVersionException If the particle effect is not supported by the server version
+     * @throws ParticleColorException   If the particle effect is not colorable or the color type is incorrect
+     * @see ParticleTemplate
+     */
+    public ParticleTemplate createTemplate(ParticleColor color) throws ParticleVersionException, ParticleColorException {
+        if (!isSupported()) {
+            throw new ParticleVersionException("This particle effect is not supported by your server version");
+        }
+        if (!hasProperty(ParticleProperty.COLORABLE)) {
+            throw new ParticleColorException("This particle effect is not colorable");
+        }
+        if (!isColorCorrect(this, color)) {
+            throw new ParticleColorException("The particle color type is incorrect");
+        }
+        return new ParticleTemplate(this, new ParticlePacket(this, color, false));
+    }
+
+    /**
+     * Creates a reusable template of a particle effect which requires additional data
+     *
+     * @param data    Data of the effect
+     * @param offsetX Maximum distance particles can fly away from the center on the x-axis
+     * @param offsetY Maximum distance particles can fly away from the center on the y-axis
+     * @param offsetZ Maximum distance particles can fly away from the center on the z-axis
+     * @param speed   Display speed of the particles
+     * @param amount  Amount of particles
+     * @return The particle template
+     * @throws ParticleVersionException If the particle effect is not supported by the server version
+     * @throws ParticleDataException    If the particle effect does not require additional data or if the data type is incorrect
+     * @see ParticleTemplate
+     */
+    public ParticleTemplate createTemplate(ParticleData data, float offsetX, float offsetY, float offsetZ, float speed, int amount) throws ParticleVersionException, ParticleDataException {
+        if (!isSupported()) {
+            throw new ParticleVersionException("This particle effect is not supported by your server version");
+        }
+        if (!hasProperty(ParticleProperty.REQUIRES_DATA)) {
+            throw new ParticleDataException("This particle effect does not require additional data");
+        }
+        if (!isDataCorrect(this, data)) {
+            throw new ParticleDataException("The particle data type is incorrect");
+        }
+        return new ParticleTemplate(this, new ParticlePacket(this, offsetX, offsetY, offsetZ, speed, amount, false, data));
+    }
+
+    /**
+     * Creates a reusable template of a single particle which requires additional data and flies into a determined direction
+     *
+     * @param data      Data of the effect
+     * @param direction Direction of the particle
+     * @param speed     Display speed of the particles
+     * @return The particle template
+     * @throws ParticleVersionException If the particle effect is not supported by the server version
+     * @throws ParticleDataException    If the particle effect does not require additional data or if the data type is incorrect
+     * @see ParticleTemplate
+     */
+    public ParticleTemplate createTemplate(ParticleData data, Vector direction, float speed) throws ParticleVersionException, ParticleDataException {
+        if (!isSupported()) {
+            throw new ParticleVersionException("This particle effect is not supported by your server version");
+        }
+        if (!hasProperty(ParticleProperty.REQUIRES_DATA)) {
+            throw new ParticleDataException("This particle effect does not require additional data");
+        }
+        if (!isDataCorrect(this, data)) {
+            throw new ParticleDataException("The particle data type is incorrect");
+        }
+        return new ParticleTemplate(this, new ParticlePacket(this, direction, speed, false, data));
+    }
+
     /**
      * Represents the property of a particle effect
      */
@@ -1238,11 +1418,28 @@ public enum ParticleEffect {
     public static final class ParticlePacket {
         private static int version;
         private static Class<?> enumParticle;
+        private static Object[] particleConstants;
         private static Constructor<?> packetConstructor;
         private static Method getHandle;
         private static Field playerConnection;
         private static Method sendPacket;
-        private static boolean initialized;
+        private static MethodHandle setName;
+        private static MethodHandle setX;
+        private static MethodHandle setY;
+        private static MethodHandle setZ;
+        private static MethodHandle setOffsetX;
+        private static MethodHandle setOffsetY;
+        private static MethodHandle setOffsetZ;
+        private static MethodHandle setSpeed;
+        private static MethodHandle setAmount;
+        private static MethodHandle setLongDistance;
+        private static MethodHandle setData;
+        private static Field networkManager;
+        private static Field channel;
+        private static MethodHandle channelWrite;
+        private static MethodHandle channelFlush;
+        private static MethodHandle channelEventLoop;
+        private static volatile boolean initialized;
         private final ParticleEffect effect;
         private float offsetX;
         private final float offsetY;
@@ -1251,6 +1448,9 @@ public enum ParticleEffect {
         private final int amount;
         private final boolean longDistance;
         private final ParticleData data;
+        private Object particle;
+        private Object packetData;
+        private boolean nativeBackend;
         private Object packet;
 
         /**
@@ -1266,9 +1466,13 @@ public enum ParticleEffect {
          * @param data         Data of the effect
          * @throws IllegalArgumentException If the speed or amount is lower than 0
          * @see #initialize()
+         * @see NativeParticleBackend
          */
         public ParticlePacket(ParticleEffect effect, float offsetX, float offsetY, float offsetZ, float speed, int amount, boolean longDistance, ParticleData data) throws IllegalArgumentException {
-            initialize();
+            // Natively displayed effects do not need the reflective members
+            if (!NativeParticleBackend.displays(effect, longDistance)) {
+                initialize();
+            }
             if (speed < 0) {
                 throw new IllegalArgumentException("The speed is lower than 0");
             }
@@ -1316,9 +1520,60 @@ public enum ParticleEffect {
         }
 
         /**
-         * Initializes {@link #packetConstructor}, {@link #getHandle}, {@link #playerConnection} and {@link #sendPacket} and sets {@link #initialized} to <code>true</code> if it succeeds
+         * Construct a copy of a particle packet which shares its resolved particle and data values
+         *
+         * @param template     Particle packet to copy
+         * @param longDistance Indicates whether the maximum distance is increased from 256 to 65536
+         * @see ParticleTemplate
+         */
+        ParticlePacket(ParticlePacket template, boolean longDistance) {
+            this(template, longDistance, template.amount);
+        }
+
+        /**
+         * Construct a copy of a particle packet with another amount of particles
+         *
+         * @param template     Particle packet to copy
+         * @param longDistance Indicates whether the maximum distance is increased from 256 to 65536
+         * @param amount       Amount of particles
+         */
+        private ParticlePacket(ParticlePacket template, boolean longDistance, int amount) {
+            this.effect = template.effect;
+            this.offsetX = template.offsetX;
+            this.offsetY = template.offsetY;
+            this.offsetZ = template.offsetZ;
+            this.speed = template.speed;
+            this.amount = amount;
+            this.longDistance = longDistance;
+            this.data = template.data;
+            boolean displayedNatively = NativeParticleBackend.displays(effect, longDistance);
+            if (!displayedNatively) {
+                initialize();
+            }
+            // A long distance copy of a natively displayed packet is resolved again for the reflective packet
+            if (template.nativeBackend == displayedNatively) {
+                this.particle = template.particle;
+                this.packetData = template.packetData;
+                this.nativeBackend = template.nativeBackend;
+            }
+        }
+
+        /**
+         * Returns a copy of this packet with the amount of particles reduced by a level of detail tier
+         *
+         * @param tier Tier which applies
+         * @return The reduced packet or this packet if the amount does not change
+         */
+        ParticlePacket reduce(LodPolicy.Tier tier) {
+            int reduced = tier.scaleAmount(amount);
+            return reduced == amount ? this : new ParticlePacket(this, longDistance, reduced);
+        }
+
+        /**
+         * Initializes {@link #packetConstructor}, {@link #getHandle}, {@link #playerConnection}, {@link #sendPacket} and the packet field setters and sets {@link #initialized} to <code>true</code> if it succeeds
          * <p>
-         * <b>Note:</b> These fields only have to be initialized once, so it will return if {@link #initialized} is already set to <code>true</code>
+         * <b>Note:</b> These fields only have to be initialized once, so it will return if {@link #initialized} is already set to <code>true</code>.
+         * Initialization is synchronized and all fields are written before the volatile {@link #initialized} flag, so they are visible to every thread which observed the flag
          *
          * @throws VersionIncompatibleException if your bukkit version is not supported by this library
          */
@@ -1326,32 +1581,104 @@ public enum ParticleEffect {
             if (initialized) {
                 return;
             }
+            synchronized (ParticlePacket.class) {
+                if (!initialized) {
+                    initializeMembers();
+                }
+            }
+        }
+
+        private static void initializeMembers() throws VersionIncompatibleException {
             try {
-                //version = Integer.parseInt(Character.toString(ReflectionUtils.PackageType.getServerVersion().charAt(3)));
-                String Subversion = Bukkit.getServer().getClass().getPackage().getName().replace(".", ",").split(",")[3].replace("1_", "");
-                version = Integer.parseInt(Subversion.substring(1).replaceAll("_R\\d",""));
+                version = getVersion();
                 if (version > 7 || version <= 1) {
                     enumParticle = ReflectionUtils.PackageType.MINECRAFT_SERVER.getClass("EnumParticle");
+                    // getEnumConstants returns a copy, so the constants are only fetched once
+                    particleConstants = enumParticle.getEnumConstants();
                 }
                 Class<?> packetClass = ReflectionUtils.PackageType.MINECRAFT_SERVER.getClass(version < 7 && version > 1 ? "Packet63WorldParticles" : "PacketPlayOutWorldParticles");
                 packetConstructor = ReflectionUtils.getConstructor(packetClass);
+                setName = getSetter(packetClass, "a", Object.class);
+                setX = getSetter(packetClass, "b", float.class);
+                setY = getSetter(packetClass, "c", float.class);
+                setZ = getSetter(packetClass, "d", float.class);
+                setOffsetX = getSetter(packetClass, "e", float.class);
+                setOffsetY = getSetter(packetClass, "f", float.class);
+                setOffsetZ = getSetter(packetClass, "g", float.class);
+                setSpeed = getSetter(packetClass, "h", float.class);
+                setAmount = getSetter(packetClass, "i", int.class);
+                if (version > 7 || version <= 1) {
+                    setLongDistance = getSetter(packetClass, "j", boolean.class);
+                    setData = getSetter(packetClass, "k", Object.class);
+                }
                 getHandle = ReflectionUtils.getMethod("CraftPlayer", ReflectionUtils.PackageType.CRAFTBUKKIT_ENTITY, "getHandle");
                 playerConnection = ReflectionUtils.getField("EntityPlayer", ReflectionUtils.PackageType.MINECRAFT_SERVER, false, "playerConnection");
                 sendPacket = ReflectionUtils.getMethod(playerConnection.getType(), "sendPacket", ReflectionUtils.PackageType.MINECRAFT_SERVER.getClass("Packet"));
+                initializeChannels();
             } catch (Exception exception) {
                 throw new VersionIncompatibleException("Particles are not supported in Version "+ ReflectionUtils.PackageType.getServerVersion()+" (Sub "+version+")", exception);
             }
             initialized = true;
         }
 
+        /**
+         * Initializes {@link #networkManager}, {@link #channel}, {@link #channelWrite}, {@link #channelFlush} and {@link #channelEventLoop}
+         * <p>
+         * <b>Note:</b> Direct channel access is optional, {@link #sendPackets(Player, Object[], int)} falls back to {@link #sendPacket} if it cannot be resolved
+         */
+        private static void initializeChannels() {
+            try {
+                Field managerField = ReflectionUtils.getField(playerConnection.getType(), false, "networkManager");
+                Field channelField = null;
+                for (Field field : managerField.getType().getDeclaredFields()) {
+                    // Netty is relocated on some versions, so the channel field is matched by its type name
+                    if (field.getType().getName().endsWith(".channel.Channel")) {
+                        channelField = field;
+                        break;
+                    }
+                }
+                if (channelField == null) {
+                    return;
+                }
+                channelField.setAccessible(true);
+                Class<?> channelClass = channelField.getType();
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle write = lookup.unreflect(channelClass.getMethod("write", Object.class)).asType(MethodType.methodType(void.class, Object.class, Object.class));
+                MethodHandle flush = lookup.unreflect(channelClass.getMethod("flush")).asType(MethodType.methodType(void.class, Object.class));
+                MethodHandle eventLoop = lookup.unreflect(channelClass.getMethod("eventLoop")).asType(MethodType.methodType(Object.class, Object.class));
+                networkManager = managerField;
+                channel = channelField;
+                channelWrite = write;
+                channelFlush = flush;
+                channelEventLoop = eventLoop;
+            } catch (Exception exception) {
+                channelWrite = null;
+            }
+        }
+
+        /**
+         * Returns a setter for a declared field of the packet class, adapted to the type <code>(Object, valueType)void</code>
+         *
+         * @param packetClass Class of the particle packet
+         * @param fieldName   Name of the field
+         * @param valueType   Type of the values that will be written
+         * @return The adapted setter
+         * @throws ReflectiveOperationException If the field cannot be found or accessed
+         */
+        private static MethodHandle getSetter(Class<?> packetClass, String fieldName, Class<?> valueType) throws ReflectiveOperationException {
+            return ReflectionUtils.getFieldSetter(packetClass, true, fieldName).asType(MethodType.methodType(void.class, Object.class, valueType));
+        }
+
         /**
          * Returns the version of your server (1.x)
          *
          * @return The version number
          */
         public static int getVersion() {
-            if (!initialized) {
-                initialize();
+            if (version == 0) {
+                //version = Integer.parseInt(Character.toString(ReflectionUtils.PackageType.getServerVersion().charAt(3)));
+                String Subversion = Bukkit.getServer().getClass().getPackage().getName().replace(".", ",").split(",")[3].replace("1_", "");
+                version = Integer.parseInt(Subversion.substring(1).replaceAll("_R\\d",""));
             }
             return version;
         }
@@ -1366,47 +1693,108 @@ public enum ParticleEffect {
             return initialized;
         }
 
+        /**
+         * Resolves {@link #particle} and {@link #packetData}, which only depend on the effect and its data
+         * <p>
+         * For natively displayed effects {@link #packetData} holds the native data instead
+         */
+        void resolve() {
+            if (particle != null) {
+                return;
+            }
+            if (NativeParticleBackend.displays(effect, longDistance)) {
+                packetData = NativeParticleBackend.toNativeData(effect, data);
+                if (packetData == null && effect.hasProperty(ParticleProperty.COLORABLE)) {
+                    // Resolved once, so displaying a colored template does not create its dust options again
+                    packetData = amount == 0 ? NativeParticleBackend.toDustOptions(effect, offsetX, offsetY, offsetZ) : NativeParticleBackend.toDefaultDustOptions(effect);
+                }
+                nativeBackend = true;
+                particle = effect;
+            } else if (version < 8 && version > 1) {
+                String name = effect.getName();
+                if (data != null) {
+                    name += data.getPacketDataString();
+                }
+                particle = name;
+            } else {
+                if (data != null) {
+                    int[] values = data.getPacketData();
+                    packetData = effect == ParticleEffect.ITEM_CRACK ? values : new int[]{values[0] | (values[1] << 12)};
+                }
+                particle = particleConstants[effect.getId()];
+            }
+        }
+
         /**
          * Initializes {@link #packet} with all set values
+         * <p>
+         * Fields which keep their default value are not written
          *
          * @param center Center location of the effect
          * @throws PacketInstantiationException If instantion fails due to an unknown error
          */
         private void initializePacket(Location center) throws PacketInstantiationException {
+            getPacket(center.getX(), center.getY(), center.getZ());
+        }
+
+        /**
+         * Returns {@link #packet} and initializes it with the given center coordinates if that did not happen yet
+         *
+         * @param x Center x-coordinate of the effect
+         * @param y Center y-coordinate of the effect
+         * @param z Center z-coordinate of the effect
+         * @return The packet
+         * @throws PacketInstantiationException If instantion fails due to an unknown error
+         */
+        Object getPacket(double x, double y, double z) throws PacketInstantiationException {
             if (packet != null) {
-                return;
+                return packet;
             }
+            long start = ReflectionProfiler.start();
             try {
-                packet = packetConstructor.newInstance();
-                if (version < 8 && version > 1) {
-                    String name = effect.getName();
-                    if (data != null) {
-                        name += data.getPacketDataString();
+                resolve();
+                Object packet = packetConstructor.newInstance();
+                setName.invokeExact(packet, particle);
+                if (version > 7 || version <= 1) {
+                    if (longDistance) {
+                        setLongDistance.invokeExact(packet, true);
                     }
-                    ReflectionUtils.setValue(packet, true, "a", name);
-                } else {
-                    ReflectionUtils.setValue(packet, true, "a", enumParticle.getEnumConstants()[effect.getId()]);
-                    ReflectionUtils.setValue(packet, true, "j", longDistance);
-                    if (data != null) {
-                        int[] packetData = data.getPacketData();
-                        ReflectionUtils.setValue(packet, true, "k", effect == ParticleEffect.ITEM_CRACK ? packetData : new int[]{packetData[0] | (packetData[1] << 12)});
+                    if (packetData != null) {
+                        setData.invokeExact(packet, packetData);
                     }
                 }
-                ReflectionUtils.setValue(packet, true, "b", (float) center.getX());
-                ReflectionUtils.setValue(packet, true, "c", (float) center.getY());
-                ReflectionUtils.setValue(packet, true, "d", (float) center.getZ());
-                ReflectionUtils.setValue(packet, true, "e", offsetX);
-                ReflectionUtils.setValue(packet, true, "f", offsetY);
-                ReflectionUtils.setValue(packet, true, "g", offsetZ);
-                ReflectionUtils.setValue(packet, true, "h", speed);
-                ReflectionUtils.setValue(packet, true, "i", amount);
-            } catch (Exception exception) {
+                setX.invokeExact(packet, (float) x);
+                setY.invokeExact(packet, (float) y);
+                setZ.invokeExact(packet, (float) z);
+                if (offsetX != 0) {
+                    setOffsetX.invokeExact(packet, offsetX);
+                }
+                if (offsetY != 0) {
+                    setOffsetY.invokeExact(packet, offsetY);
+                }
+                if (offsetZ != 0) {
+                    setOffsetZ.invokeExact(packet, offsetZ);
+                }
+                if (speed != 0) {
+                    setSpeed.invokeExact(packet, speed);
+                }
+                if (amount != 0) {
+                    setAmount.invokeExact(packet, amount);
+                }
+                this.packet = packet;
+                return packet;
+            } catch (Throwable exception) {
                 throw new PacketInstantiationException("Packet instantiation failed", exception);
+            } finally {
+                ReflectionProfiler.record("ParticlePacket#initializePacket", start);
             }
         }
 
         /**
          * Sends the packet to a single player and caches it
+         * <p>
+         * If the {@link PacketRateLimiter} is enabled and the player exceeds its limit, the packet is handled according to the overflow mode of the limiter instead.
+         * If the {@link ParticleCoalescer} is enabled, the packet is merged with identical packets of the same tick and sent at the start of the next tick
          *
          * @param center Center location of the effect
          * @param player Receiver of the packet
@@ -1415,17 +1803,245 @@ public enum ParticleEffect {
          * @see #initializePacket(Location)
          */
         public void sendTo(Location center, Player player) throws PacketInstantiationException, PacketSendingException {
+            ParticleCoalescer coalescer = ParticleCoalescer.getInstance();
+            if (coalescer.isEnabled() && coalescer.offer(this, center, player)) {
+                return;
+            }
+            sendNow(center, player);
+        }
+
+        /**
+         * Sends the packet to a single player without passing the {@link ParticleCoalescer}
+         *
+         * @param center Center location of the effect
+         * @param player Receiver of the packet
+         * @throws PacketInstantiationException If instantion fails due to an unknown error
+         * @throws PacketSendingException       If sending fails due to an unknown error
+         */
+        void sendNow(Location center, Player player) throws PacketInstantiationException, PacketSendingException {
+            resolve();
+            PacketRateLimiter limiter = PacketRateLimiter.getInstance();
+            if (nativeBackend) {
+                final Player receiver = player;
+                final double x = center.getX(), y = center.getY(), z = center.getZ();
+                if (!limiter.isEnabled() || limiter.tryAcquire(player, this, center, (Runnable) () -> spawn(receiver, x, y, z))) {
+                    spawn(player, x, y, z);
+                }
+                return;
+            }
             initializePacket(center);
+            if (limiter.isEnabled() && !limiter.tryAcquire(player, this, center, packet)) {
+                return;
+            }
+            sendDirect(player);
+        }
+
+        /**
+         * Writes the attributes of this packet, the center location is not part of them
+         *
+         * @param out Stream to write to
+         * @throws IOException If writing fails
+         * @see #readAttributes(ByteBuffer)
+         */
+        void writeAttributes(DataOutputStream out) throws IOException {
+            out.writeByte(effect.ordinal());
+            out.writeFloat(offsetX);
+            out.writeFloat(offsetY);
+            out.writeFloat(offsetZ);
+            out.writeFloat(speed);
+            out.writeInt(amount);
+            out.writeBoolean(longDistance);
+            out.writeBoolean(data != null);
+            if (data != null) {
+                out.writeUTF(data.getMaterial().name());
+                out.writeByte(data.getData());
+            }
+        }
+
+        /**
+         * Reads the attributes written by {@link #writeAttributes(DataOutputStream)} and creates a packet from them
+         *
+         * @param buffer Buffer to read from
+         * @return The particle packet
+         */
+        static ParticlePacket readAttributes(ByteBuffer buffer) {
+            ParticleEffect effect = values()[buffer.get()];
+            float offsetX = buffer.getFloat();
+            float offsetY = buffer.getFloat();
+            float offsetZ = buffer.getFloat();
+            float speed = buffer.getFloat();
+            int amount = buffer.getInt();
+            boolean longDistance = buffer.get() != 0;
+            ParticleData data = null;
+            if (buffer.get() != 0) {
+                // Strings are written in modified UTF-8, which equals UTF-8 for material names
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                Material material = Material.valueOf(new String(name, StandardCharsets.UTF_8));
+                byte value = buffer.get();
+                data = effect == ParticleEffect.ITEM_CRACK ? new ItemData(material, value) : new BlockData(material, value);
+            }
+            return new ParticlePacket(effect, offsetX, offsetY, offsetZ, speed, amount, longDistance, data);
+        }
+
+        /**
+         * Returns the particle effect of this packet
+         *
+         * @return The particle effect
+         */
+        ParticleEffect getEffect() {
+            return effect;
+        }
+
+        /**
+         * Returns the amount of particles of this packet
+         *
+         * @return The amount of particles
+         */
+        int getAmount() {
+            return amount;
+        }
+
+        /**
+         * Determine if this packet can be merged with another one, which requires all attributes except the amount to be equal
+         *
+         * @param other Particle packet to compare with
+         * @return Whether the packets can be merged or not
+         */
+        boolean canMerge(ParticlePacket other) {
+            if (effect != other.effect || longDistance != other.longDistance || offsetX != other.offsetX || offsetY != other.offsetY || offsetZ != other.offsetZ || speed != other.speed) {
+                return false;
+            }
+            if (data == null || other.data == null) {
+                return data == other.data;
+            }
+            return data.getMaterial() == other.data.getMaterial() && data.getData() == other.data.getData();
+        }
+
+        /**
+         * Returns a copy of this packet with another amount of particles
+         *
+         * @param amount Amount of particles
+         * @return The copy or this packet if the amount does not change
+         */
+        ParticlePacket withAmount(int amount) {
+            return amount == this.amount ? this : new ParticlePacket(this, longDistance, amount);
+        }
+
+        /**
+         * Determine if this packet is displayed through the {@link NativeParticleBackend}
+         *
+         * @return Whether the effect is displayed natively or not
+         */
+        boolean isNative() {
+            resolve();
+            return nativeBackend;
+        }
+
+        /**
+         * Displays this effect to a single player through the {@link NativeParticleBackend}
+         *
+         * @param player Receiver of the effect
+         * @param x      Center x-coordinate of the effect
+         * @param y      Center y-coordinate of the effect
+         * @param z      Center z-coordinate of the effect
+         */
+        void spawn(Player player, double x, double y, double z) {
+            NativeParticleBackend.spawn(player, effect, x, y, z, offsetX, offsetY, offsetZ, speed, amount, packetData);
+        }
+
+        /**
+         * Sends the initialized packet to a single player without taking a token of the rate limiter
+         *
+         * @param player Receiver of the packet
+         * @throws PacketSendingException If sending fails due to an unknown error
+         */
+        private void sendDirect(Player player) throws PacketSendingException {
+            long start = ReflectionProfiler.start();
             try {
                 sendPacket.invoke(playerConnection.get(getHandle.invoke(player)), packet);
             } catch (Exception exception) {
                 throw new PacketSendingException("Failed to send the packet to player '" + player.getName() + "'", exception);
+            } finally {
+                ReflectionProfiler.record("ParticlePacket#sendPacket", start);
+            }
+        }
+
+        /**
+         * Returns the netty channel class of the server
+         *
+         * @return The channel class or <code>null</code> if direct channel access is not available
+         */
+        static Class<?> getChannelClass() {
+            initialize();
+            return channelWrite == null ? null : channel.getType();
+        }
+
+        /**
+         * Returns the netty channel of a player
+         *
+         * @param player Player whose channel is returned
+         * @return The channel or <code>null</code> if direct channel access is not available
+         * @throws PacketSendingException If the channel cannot be accessed due to an unknown error
+         */
+        static Object getChannel(Player player) throws PacketSendingException {
+            if (channelWrite == null) {
+                return null;
+            }
+            try {
+                return channel.get(networkManager.get(playerConnection.get(getHandle.invoke(player))));
+            } catch (Exception exception) {
+                throw new PacketSendingException("Failed to access the connection of player '" + player.getName() + "'", exception);
+            }
+        }
+
+        /**
+         * Sends several packets to a single player, writing them to its connection and flushing it once
+         * <p>
+         * The packets are written on the event loop of the connection, so the array must not be modified afterwards
+         *
+         * @param player  Receiver of the packets
+         * @param packets Packets to send
+         * @param count   Amount of packets in the array which are sent
+         * @throws PacketSendingException If sending fails due to an unknown error
+         */
+        static void sendPackets(Player player, final Object[] packets, final int count) throws PacketSendingException {
+            long start = ReflectionProfiler.start();
+            try {
+                Object connection = playerConnection.get(getHandle.invoke(player));
+                if (channelWrite == null) {
+                    for (int index = 0; index < count; index++) {
+                        sendPacket.invoke(connection, packets[index]);
+                    }
+                    return;
+                }
+                final Object target = channel.get(networkManager.get(connection));
+                Executor eventLoop = (Executor) channelEventLoop.invokeExact(target);
+                eventLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int index = 0; index < count; index++) {
+                                channelWrite.invokeExact(target, packets[index]);
+                            }
+                            channelFlush.invokeExact(target);
+                        } catch (Throwable throwable) {
+                            throwable.printStackTrace();
+                        }
+                    }
+                });
+            } catch (Throwable exception) {
+                throw new PacketSendingException("Failed to send the packets to player '" + player.getName() + "'", exception);
+            } finally {
+                ReflectionProfiler.record("ParticlePacket#sendPackets", start);
             }
         }
 
         /**
          * Sends the packet to all players in the list
          *
+         * <b>Note:</b> In {@link ParticleExecutor#isAsync() async mode} the packet is built and sent on the particle executor, unless the effect is displayed natively
+         *
          * @param center  Center location of the effect
          * @param players Receivers of the packet
          * @throws IllegalArgumentException If the player list is empty
@@ -1435,13 +2051,54 @@ public enum ParticleEffect {
             if (players.isEmpty()) {
                 throw new IllegalArgumentException("The player list is empty");
             }
-            for (Player player : players) {
-                sendTo(center, player);
+            ParticleRecorder.capture(this, center);
+            // Native spawns call the Bukkit API, so only packets are built on the executor
+            if (ParticleExecutor.isAsync() && !isNative()) {
+                final Location snapshot = center.clone();
+                final List<Player> audience = new ArrayList<>(players);
+                try {
+                    ParticleExecutor.execute(() -> sendTo(snapshot, audience, null, null));
+                    return;
+                } catch (RejectedExecutionException exception) {
+                    // The executor was shut down in the meantime, so the packet is sent right away
+                }
+            }
+            sendTo(center, players, null, null);
+        }
+
+        /**
+         * Sends the packet to all players in the list, encoding it only once if the {@link PacketBroadcaster} is enabled
+         *
+         * @param center  Center location of the effect
+         * @param players Receivers of the packet
+         */
+        private void broadcast(Location center, List<Player> players) {
+            if (!PacketBroadcaster.isEnabled() || players.size() < 2 || isNative() || ParticleCoalescer.getInstance().isEnabled()) {
+                for (Player player : players) {
+                    sendTo(center, player);
+                }
+                return;
+            }
+            initializePacket(center);
+            PacketRateLimiter limiter = PacketRateLimiter.getInstance();
+            if (limiter.isEnabled()) {
+                List<Player> admitted = new ArrayList<>(players.size());
+                for (Player player : players) {
+                    if (limiter.tryAcquire(player, this, center, packet)) {
+                        admitted.add(player);
+                    }
+                }
+                players = admitted;
+            }
+            for (Player player : PacketBroadcaster.broadcast(packet, players)) {
+                sendDirect(player);
             }
         }
 
         /**
          * Sends the packet to all players in a certain range
+         * <p>
+         * Players are looked up through the {@link PlayerIndex} if it is active, the {@link ParticleEffect#getLodPolicy() level of detail policy} reduces the particles for distant players
          *
          * @param center Center location of the effect
          * @param range  Range in which players will receive the packet (Maximum range for particles is usually 16, but it can differ for some types)
@@ -1452,14 +2109,92 @@ public enum ParticleEffect {
             if (range < 1) {
                 throw new IllegalArgumentException("The range is lower than 1");
             }
-            String worldName = center.getWorld().getName();
-            double squared = range * range;
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                if (!player.getWorld().getName().equals(worldName) || player.getLocation().distanceSquared(center) > squared) {
-                    continue;
+            ParticleRecorder.capture(this, center);
+            final LodPolicy lod = lodPolicy;
+            World world = center.getWorld();
+            Location playerLocation = new Location(world, 0, 0, 0);
+            final List<Player> players;
+            if (PlayerIndex.getInstance().isActive()) {
+                players = PlayerIndex.getInstance().getNearbyPlayers(center, range);
+            } else {
+                players = new ArrayList<>();
+                double squared = range * range;
+                for (Player player : Bukkit.getOnlinePlayers()) {
+                    player.getLocation(playerLocation);
+                    if (playerLocation.getWorld() == world && playerLocation.distanceSquared(center) <= squared) {
+                        players.add(player);
+                    }
+                }
+            }
+            if (players.isEmpty()) {
+                return;
+            }
+            double[] distances = null;
+            if (lod != null) {
+                distances = new double[players.size()];
+                for (int index = 0; index < distances.length; index++) {
+                    players.get(index).getLocation(playerLocation);
+                    distances[index] = playerLocation.distanceSquared(center);
+                }
+            }
+            if (ParticleExecutor.isAsync() && !isNative()) {
+                // Only the audience and the center are snapshotted on the calling thread
+                final Location snapshot = center.clone();
+                final double[] snapshotDistances = distances;
+                try {
+                    ParticleExecutor.execute(() -> sendTo(snapshot, players, snapshotDistances, lod));
+                    return;
+                } catch (RejectedExecutionException exception) {
+                    // The executor was shut down in the meantime, so the packet is sent right away
                 }
+            }
+            sendTo(center, players, distances, lod);
+        }
+
+        /**
+         * Sends the packet to the players of an audience
+         *
+         * @param center    Center location of the effect
+         * @param players   Receivers of the packet
+         * @param distances Squared distances between the receivers and the center, only required if a policy is given
+         * @param lod       Level of detail policy or <code>null</code> to send the full detail
+         */
+        private void sendTo(Location center, List<Player> players, double[] distances, LodPolicy lod) {
+            if (lod == null) {
+                broadcast(center, players);
+                return;
+            }
+            ParticlePacket[] reduced = new ParticlePacket[lod.size()];
+            long frame = LodPolicy.currentFrame();
+            for (int index = 0; index < distances.length; index++) {
+                sendTo(center, players.get(index), distances[index], lod, reduced, frame);
+            }
+        }
+
+        /**
+         * Sends the packet to a single player with the detail of the tier which applies to its distance
+         *
+         * @param center          Center location of the effect
+         * @param player          Receiver of the packet
+         * @param distanceSquared Squared distance between the receiver and the center
+         * @param lod             Level of detail policy
+         * @param reduced         Reduced packets per tier, filled as they are needed
+         * @param frame           Current frame number
+         */
+        private void sendTo(Location center, Player player, double distanceSquared, LodPolicy lod, ParticlePacket[] reduced, long frame) {
+            int index = lod.indexOf(distanceSquared);
+            if (index < 0) {
                 sendTo(center, player);
+                return;
+            }
+            LodPolicy.Tier tier = lod.tier(index);
+            if (tier.skipsFrame(frame, player.getUniqueId().hashCode())) {
+                return;
+            }
+            if (reduced[index] == null) {
+                reduced[index] = reduce(tier);
             }
+            reduced[index].sendTo(center, player);
         }
 
         /**
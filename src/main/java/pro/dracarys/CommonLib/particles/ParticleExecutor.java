@@ -0,0 +1,105 @@
+package pro.dracarys.CommonLib.particles;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedicated executor on which particle packets are built and written in async mode
+ * <p>
+ * In async mode the displaying thread only determines the receivers and snapshots the center location, everything else happens on a single daemon thread so the order of the effects is kept.
+ * Effects displayed through the {@link NativeParticleBackend} call the Bukkit API, so they are always displayed on the calling thread
+ * <p>
+ * <b>Note:</b> Async mode is disabled by default, once the executor is shut down it refuses tasks and effects are displayed on the calling thread again
+ */
+public final class ParticleExecutor {
+    private static final Object LOCK = new Object();
+    private static volatile boolean async;
+    private static volatile boolean stopped;
+    private static ExecutorService executor;
+
+    // Prevent accidental construction
+    private ParticleExecutor() {
+    }
+
+    /**
+     * Determine if particle packets are built and sent on the executor
+     *
+     * @return Whether async mode is enabled and the executor accepts tasks or not
+     */
+    public static boolean isAsync() {
+        return async && !stopped;
+    }
+
+    /**
+     * Enables or disables async mode
+     *
+     * @param async Whether particle packets are built and sent on the executor or not
+     */
+    public static void setAsync(boolean async) {
+        ParticleExecutor.async = async;
+    }
+
+    /**
+     * Determine if the executor was shut down and refuses tasks
+     *
+     * @return Whether the executor is shut down or not
+     */
+    static boolean isShutdown() {
+        return stopped;
+    }
+
+    /**
+     * Runs a task on the executor, starting its thread if necessary
+     *
+     * @param task Task to run
+     * @throws RejectedExecutionException If the executor is shut down
+     */
+    static void execute(final Runnable task) throws RejectedExecutionException {
+        getExecutor().execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException exception) {
+                exception.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Stops the executor after the queued tasks are done, further tasks are refused so no thread outlives the plugin
+     */
+    public static void shutdown() {
+        ExecutorService terminated;
+        synchronized (LOCK) {
+            stopped = true;
+            terminated = executor;
+            executor = null;
+        }
+        if (terminated == null) {
+            return;
+        }
+        terminated.shutdown();
+        try {
+            terminated.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService getExecutor() throws RejectedExecutionException {
+        synchronized (LOCK) {
+            if (stopped) {
+                throw new RejectedExecutionException("The particle executor is shut down");
+            }
+            if (executor == null) {
+                executor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "CommonLib Particle Executor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return executor;
+        }
+    }
+}
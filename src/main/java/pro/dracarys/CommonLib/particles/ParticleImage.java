@@ -0,0 +1,122 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+
+/**
+ * Represents an image or text as an immutable cloud of colored particles
+ * <p>
+ * The pixels are grouped by color and every color holds its pre-resolved template, so displaying the image again only walks the point buffers.
+ * The image lies in the x-y plane centered on its origin, x points to the right and y upwards, a {@link Transform} turns or scales it in the world
+ *
+ * @see ParticleImages
+ */
+public final class ParticleImage implements ParticleRenderer {
+    private final ParticleTemplate[] templates;
+    private final PointBuffer[] points;
+    private final double width;
+    private final double height;
+    private final int size;
+
+    /**
+     * Construct a new particle image
+     *
+     * @param templates Template of every color
+     * @param points    Points of every color, relative to the center of the image
+     * @param width     Width of the image in blocks
+     * @param height    Height of the image in blocks
+     */
+    ParticleImage(ParticleTemplate[] templates, PointBuffer[] points, double width, double height) {
+        this.templates = templates;
+        this.points = points;
+        this.width = width;
+        this.height = height;
+        int size = 0;
+        for (PointBuffer buffer : points) {
+            size += buffer.size();
+        }
+        this.size = size;
+    }
+
+    /**
+     * Returns the amount of particles of this image
+     *
+     * @return The amount of particles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the amount of distinct colors of this image
+     *
+     * @return The amount of colors
+     */
+    public int getColors() {
+        return templates.length;
+    }
+
+    /**
+     * Returns the width of this image
+     *
+     * @return The width in blocks
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of this image
+     *
+     * @return The height in blocks
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * Adds every particle of this image to a batch
+     *
+     * @param batch     Batch to add the particles to
+     * @param transform Transform which places the image in the world
+     * @return The batch
+     */
+    public ParticleBatch addTo(ParticleBatch batch, Transform transform) {
+        for (int index = 0; index < templates.length; index++) {
+            batch.add(templates[index], points[index], transform);
+        }
+        return batch;
+    }
+
+    @Override
+    public void render(ParticleBatch batch, Location origin, long frame) {
+        for (int index = 0; index < templates.length; index++) {
+            points[index].addTo(batch, templates[index], origin.getX(), origin.getY(), origin.getZ());
+        }
+    }
+
+    /**
+     * Displays this image to all players within a certain range of it
+     *
+     * @param center Center location of the image
+     * @param range  Range of the visibility
+     * @throws IllegalArgumentException If the range is lower than 1
+     */
+    public void display(Location center, double range) throws IllegalArgumentException {
+        ParticleBatch batch = new ParticleBatch(center.getWorld());
+        render(batch, center, 0);
+        batch.send(range);
+    }
+
+    /**
+     * Displays this image turned so it reads correctly when looking in the direction of the yaw of its center location (e.g. a location in front of a player with the yaw of the player)
+     *
+     * @param center Center location of the image, its yaw determines the facing
+     * @param range  Range of the visibility
+     * @throws IllegalArgumentException If the range is lower than 1
+     */
+    public void displayFacing(Location center, double range) throws IllegalArgumentException {
+        // Unturned, the image reads correctly when looking along the negative z-axis, which is a yaw of 180 degrees
+        Transform transform = Transform.rotation(0, 1, 0, Math.toRadians(180 - center.getYaw())).translate(center.getX(), center.getY(), center.getZ());
+        addTo(new ParticleBatch(center.getWorld()), transform).send(range);
+    }
+}
@@ -0,0 +1,227 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Color;
+import pro.dracarys.CommonLib.particles.ParticleEffect.OrdinaryColor;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns images and text into {@link ParticleImage}s of colored {@link ParticleEffect#REDSTONE} particles
+ * <p>
+ * Results are cached by their content, so showing the same logo or text again neither reads its pixels into points nor resolves its colors again.
+ * Every distinct color is resolved into a template once, which holds the dust options on 1.13+ and the color offsets on older versions
+ */
+public final class ParticleImages {
+    private static final int MAX_CACHED = 64;
+    private static final int ALPHA_THRESHOLD = 128;
+    private static final Map<Key, ParticleImage> CACHE = new LinkedHashMap<Key, ParticleImage>(16, 0.75F, true) {
+        private static final long serialVersionUID = 3203085387160737484L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, ParticleImage> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    // Prevent accidental construction
+    private ParticleImages() {
+    }
+
+    /**
+     * Returns the particle image of an image, pixels which are mostly transparent are left out
+     *
+     * @param image     Image to convert
+     * @param pixelSize Distance between two particles in blocks
+     * @return The particle image
+     * @throws IllegalArgumentException If the pixel size is not positive
+     */
+    public static ParticleImage fromImage(BufferedImage image, double pixelSize) throws IllegalArgumentException {
+        checkPixelSize(pixelSize);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        Key key = new Key(pixels, width, height, pixelSize);
+        ParticleImage cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return put(key, build(pixels, width, height, pixelSize));
+    }
+
+    /**
+     * Returns the particle image of a single line of text
+     *
+     * @param text      Text to convert
+     * @param font      Font of the text, its size is the height of a line in pixels
+     * @param color     Color of the text
+     * @param pixelSize Distance between two particles in blocks
+     * @return The particle image
+     * @throws IllegalArgumentException If the text is empty or the pixel size is not positive
+     */
+    public static ParticleImage fromText(String text, Font font, Color color, double pixelSize) throws IllegalArgumentException {
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("The text is empty");
+        }
+        checkPixelSize(pixelSize);
+        Key key = new Key(text, font.getName(), font.getStyle(), font.getSize(), color.asRGB(), pixelSize);
+        ParticleImage cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        BufferedImage image = rasterize(text, font, color);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return put(key, build(image.getRGB(0, 0, width, height, null, 0, width), width, height, pixelSize));
+    }
+
+    /**
+     * Removes all cached images
+     */
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static ParticleImage get(Key key) {
+        synchronized (CACHE) {
+            return CACHE.get(key);
+        }
+    }
+
+    private static ParticleImage put(Key key, ParticleImage image) {
+        synchronized (CACHE) {
+            CACHE.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Groups the visible pixels by color and resolves a template for every color
+     */
+    private static ParticleImage build(int[] pixels, int width, int height, double pixelSize) {
+        Map<Integer, Integer> colors = new HashMap<>();
+        int[] counts = new int[16];
+        int[] colorOf = new int[pixels.length];
+        for (int index = 0; index < pixels.length; index++) {
+            int pixel = pixels[index];
+            if ((pixel >>> 24) < ALPHA_THRESHOLD) {
+                colorOf[index] = -1;
+                continue;
+            }
+            Integer rgb = pixel & 0xFFFFFF;
+            Integer color = colors.get(rgb);
+            if (color == null) {
+                color = colors.size();
+                colors.put(rgb, color);
+                if (color == counts.length) {
+                    counts = Arrays.copyOf(counts, color << 1);
+                }
+            }
+            colorOf[index] = color;
+            counts[color]++;
+        }
+        ParticleTemplate[] templates = new ParticleTemplate[colors.size()];
+        for (Map.Entry<Integer, Integer> entry : colors.entrySet()) {
+            int rgb = entry.getKey();
+            templates[entry.getValue()] = ParticleEffect.REDSTONE.createTemplate(new OrdinaryColor((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF));
+        }
+        double[][] points = new double[templates.length][];
+        for (int color = 0; color < templates.length; color++) {
+            points[color] = new double[counts[color] * 3];
+        }
+        int[] offsets = new int[templates.length];
+        double centerX = (width - 1) / 2D;
+        double centerY = (height - 1) / 2D;
+        for (int index = 0; index < pixels.length; index++) {
+            int color = colorOf[index];
+            if (color < 0) {
+                continue;
+            }
+            int offset = offsets[color];
+            // Rows run downwards in the image but y points upwards in the world
+            points[color][offset] = (index % width - centerX) * pixelSize;
+            points[color][offset + 1] = (centerY - index / width) * pixelSize;
+            offsets[color] = offset + 3;
+        }
+        PointBuffer[] buffers = new PointBuffer[templates.length];
+        for (int color = 0; color < templates.length; color++) {
+            buffers[color] = new PointBuffer(points[color], counts[color]);
+        }
+        return new ParticleImage(templates, buffers, width * pixelSize, height * pixelSize);
+    }
+
+    /**
+     * Draws a line of text without antialiasing, so every pixel is either fully visible or transparent
+     */
+    private static BufferedImage rasterize(String text, Font font, Color color) {
+        Graphics2D measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        FontMetrics metrics = measure.getFontMetrics(font);
+        measure.dispose();
+        BufferedImage image = new BufferedImage(Math.max(1, metrics.stringWidth(text)), Math.max(1, metrics.getHeight()), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+            graphics.setFont(font);
+            graphics.setColor(new java.awt.Color(color.getRed(), color.getGreen(), color.getBlue()));
+            graphics.drawString(text, 0, metrics.getAscent());
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static void checkPixelSize(double pixelSize) throws IllegalArgumentException {
+        if (pixelSize <= 0) {
+            throw new IllegalArgumentException("The pixel size is not positive");
+        }
+    }
+
+    /**
+     * Represents the content and attributes of a cached image
+     */
+    private static final class Key {
+        private final Object content;
+        private final Object[] attributes;
+        private final int hash;
+
+        Key(Object content, Object... attributes) {
+            this.content = content;
+            this.attributes = attributes;
+            int contentHash = content instanceof int[] ? Arrays.hashCode((int[]) content) : content.hashCode();
+            this.hash = 31 * contentHash + Arrays.hashCode(attributes);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) object;
+            if (hash != other.hash || !Arrays.equals(attributes, other.attributes)) {
+                return false;
+            }
+            if (content instanceof int[] && other.content instanceof int[]) {
+                return Arrays.equals((int[]) content, (int[]) other.content);
+            }
+            return content.equals(other.content);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
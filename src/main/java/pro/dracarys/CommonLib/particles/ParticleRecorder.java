@@ -0,0 +1,248 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records particle effects into a compact binary file which can be replayed by a {@link ParticleReplay}
+ * <p>
+ * The file starts with a header holding the origin of the recording, followed by entries which either define the attributes of an effect once or display a defined effect.
+ * Display entries store the ticks since the previous entry, the index of the attributes and the position as a delta to the previous position in 1/64 blocks, all as variable length integers
+ * <p>
+ * While a recorder is {@link #start() started}, every effect displayed in the world of its origin through {@link ParticlePacket#sendTo(Location, double)}, {@link ParticlePacket#sendTo(Location, List)} or a {@link ParticleBatch} is captured, except for the effects of a running {@link ParticleReplay}.
+ * Entries are timed in server ticks, so a replay keeps the pace of the recording even if the server lagged while recording
+ */
+public final class ParticleRecorder implements Closeable {
+    static final int MAGIC = 0x434C5052;
+    static final int FORMAT = 1;
+    static final int DEFINE = 0;
+    static final int DISPLAY = 1;
+    static final double SCALE = 64;
+    private static volatile ParticleRecorder capturing;
+    private final DataOutputStream out;
+    private final World world;
+    private final List<ParticlePacket> attributes = new ArrayList<>();
+    private final Map<ParticleTemplate, Integer> templateIndices = new IdentityHashMap<>();
+    private long startFrame;
+    private boolean scheduled;
+    private long lastTick;
+    private long lastX;
+    private long lastY;
+    private long lastZ;
+    private int entries;
+    private boolean closed;
+
+    /**
+     * Construct a new particle recorder, positions are recorded relative to the origin
+     *
+     * @param file   File to write to, an existing file is overwritten
+     * @param origin Origin of the recording
+     * @throws IOException If the file cannot be created
+     */
+    public ParticleRecorder(File file, Location origin) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        this.world = origin.getWorld();
+        this.scheduled = ParticleScheduler.getInstance().isActive();
+        this.startFrame = currentFrame(scheduled);
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT);
+        out.writeDouble(origin.getX());
+        out.writeDouble(origin.getY());
+        out.writeDouble(origin.getZ());
+        lastX = quantize(origin.getX());
+        lastY = quantize(origin.getY());
+        lastZ = quantize(origin.getZ());
+    }
+
+    /**
+     * Starts capturing all displayed effects, replacing the recorder which captured before
+     */
+    public void start() {
+        capturing = this;
+    }
+
+    /**
+     * Stops capturing displayed effects, effects can still be recorded explicitly
+     */
+    public void stop() {
+        if (capturing == this) {
+            capturing = null;
+        }
+    }
+
+    /**
+     * Records a template displayed at the given location
+     *
+     * @param template Template of the effect
+     * @param center   Center location of the effect
+     * @throws IOException If writing fails
+     */
+    public void record(ParticleTemplate template, Location center) throws IOException {
+        record(template.newPacket(false), center.getX(), center.getY(), center.getZ());
+    }
+
+    /**
+     * Returns the amount of display entries written so far
+     *
+     * @return The amount of entries
+     */
+    public synchronized int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Stops capturing and closes the file
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        stop();
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /**
+     * Records a displayed packet if a recorder is capturing
+     *
+     * @param packet Particle packet which is displayed
+     * @param center Center location of the effect
+     */
+    static void capture(ParticlePacket packet, Location center) {
+        ParticleRecorder recorder = capturing;
+        if (recorder == null || center.getWorld() != recorder.world) {
+            return;
+        }
+        try {
+            recorder.record(packet, center.getX(), center.getY(), center.getZ());
+        } catch (IOException exception) {
+            recorder.stop();
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Records the entries of a batch which is sent if a recorder is capturing
+     *
+     * @param world     World of the batch
+     * @param templates Templates of the entries
+     * @param points    Packed coordinates of the entries
+     * @param size      Amount of entries
+     */
+    static void capture(World world, ParticleTemplate[] templates, double[] points, int size) {
+        ParticleRecorder recorder = capturing;
+        if (recorder == null || world != recorder.world) {
+            return;
+        }
+        try {
+            recorder.record(templates, points, size);
+        } catch (IOException exception) {
+            recorder.stop();
+            exception.printStackTrace();
+        }
+    }
+
+    private synchronized void record(ParticleTemplate[] templates, double[] points, int size) throws IOException {
+        for (int index = 0, offset = 0; index < size && !closed; index++, offset += 3) {
+            ParticleTemplate template = templates[index];
+            // Batches reuse few templates for many points, so their attributes are only looked up once per template
+            Integer defined = templateIndices.get(template);
+            if (defined == null) {
+                defined = define(template.newPacket(false));
+                templateIndices.put(template, defined);
+            }
+            write(defined, points[offset], points[offset + 1], points[offset + 2]);
+        }
+    }
+
+    private synchronized void record(ParticlePacket packet, double x, double y, double z) throws IOException {
+        if (closed) {
+            return;
+        }
+        write(define(packet), x, y, z);
+    }
+
+    /**
+     * Returns the index of the attributes of a packet, writing a definition entry if they were not recorded before
+     */
+    private int define(ParticlePacket packet) throws IOException {
+        int index = indexOf(packet);
+        if (index < 0) {
+            index = attributes.size();
+            attributes.add(packet);
+            out.writeByte(DEFINE);
+            packet.writeAttributes(out);
+        }
+        return index;
+    }
+
+    private void write(int index, double x, double y, double z) throws IOException {
+        boolean active = ParticleScheduler.getInstance().isActive();
+        long frame = currentFrame(active);
+        if (active != scheduled) {
+            // The frame switched between the time estimate and the scheduler tick, so the recording continues from the last entry
+            scheduled = active;
+            startFrame = frame - lastTick;
+        }
+        long tick = Math.max(frame - startFrame, lastTick);
+        long quantizedX = quantize(x), quantizedY = quantize(y), quantizedZ = quantize(z);
+        out.writeByte(DISPLAY);
+        writeVarLong(out, tick - lastTick);
+        writeVarLong(out, index);
+        writeVarLong(out, zigZag(quantizedX - lastX));
+        writeVarLong(out, zigZag(quantizedY - lastY));
+        writeVarLong(out, zigZag(quantizedZ - lastZ));
+        lastTick = tick;
+        lastX = quantizedX;
+        lastY = quantizedY;
+        lastZ = quantizedZ;
+        entries++;
+    }
+
+    private int indexOf(ParticlePacket packet) {
+        for (int index = 0; index < attributes.size(); index++) {
+            ParticlePacket defined = attributes.get(index);
+            if (defined.canMerge(packet) && defined.getAmount() == packet.getAmount()) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the frame counted by the scheduler if it is active, otherwise the frame estimated from the time
+     */
+    private static long currentFrame(boolean scheduled) {
+        return scheduled ? ParticleScheduler.currentTick() : System.currentTimeMillis() / 50;
+    }
+
+    private static long quantize(double value) {
+        return Math.round(value * SCALE);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,44 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+
+import java.util.function.LongFunction;
+
+/**
+ * Draws one frame of a persistent particle effect
+ *
+ * @see EffectRegistry
+ */
+public interface ParticleRenderer {
+    /**
+     * Adds the particles of the current frame to the batch
+     *
+     * @param batch  Batch of the world the effect is in
+     * @param origin Current origin of the effect, it is reused and must not be kept
+     * @param frame  Number of the frame, starting at 0 when the effect is attached
+     */
+    void render(ParticleBatch batch, Location origin, long frame);
+
+    /**
+     * Returns a renderer which draws a template at every point of a point buffer relative to the origin
+     *
+     * @param template Template of the effect
+     * @param points   Points relative to the origin
+     * @return The renderer
+     */
+    static ParticleRenderer of(final ParticleTemplate template, final PointBuffer points) {
+        return (batch, origin, frame) -> points.addTo(batch, template, origin.getX(), origin.getY(), origin.getZ());
+    }
+
+    /**
+     * Returns a renderer which draws a template at every point of a point buffer, transformed by the transform of the frame and then moved to the origin
+     *
+     * @param template  Template of the effect
+     * @param points    Points relative to the origin
+     * @param animation Function returning the transform of a frame, e.g. a rotation advancing with the frame number
+     * @return The renderer
+     */
+    static ParticleRenderer animated(final ParticleTemplate template, final PointBuffer points, final LongFunction<Transform> animation) {
+        return (batch, origin, frame) -> batch.add(template, points, animation.apply(frame).translate(origin.getX(), origin.getY(), origin.getZ()));
+    }
+}
@@ -0,0 +1,306 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a recording written by a {@link ParticleRecorder}
+ * <p>
+ * The file is memory-mapped once and streamed while it is played, so a recording does not occupy the heap no matter how long it is. It can be played several times and at several locations at once
+ * <p>
+ * <b>Note:</b> The mapping is released when the replay is closed, if playbacks are still running it is released as soon as the last one ends
+ */
+public final class ParticleReplay implements Closeable {
+    private final MappedByteBuffer mapping;
+    private final double originX;
+    private final double originY;
+    private final double originZ;
+    // Guards the mapping, it is only read and released while holding the lock
+    private final Object lock = new Object();
+    private int playing;
+    private boolean closed;
+    private boolean released;
+
+    /**
+     * Construct a new particle replay
+     *
+     * @param file Recording to replay
+     * @throws IOException If the file cannot be mapped or is not a recording
+     */
+    public ParticleReplay(File file) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "r"); FileChannel channel = access.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (mapping.remaining() < 29 || mapping.getInt() != ParticleRecorder.MAGIC) {
+            throw new IOException("The file is not a particle recording");
+        }
+        int format = mapping.get();
+        if (format != ParticleRecorder.FORMAT) {
+            throw new IOException("Unsupported recording format " + format);
+        }
+        originX = mapping.getDouble();
+        originY = mapping.getDouble();
+        originZ = mapping.getDouble();
+    }
+
+    /**
+     * Plays the recording at the given location, relative to the origin it was recorded at
+     *
+     * @param plugin Plugin which owns the playback task
+     * @param origin Origin of the playback
+     * @param range  Range of the visibility
+     * @return The playback
+     * @throws IllegalArgumentException If the range is lower than 1
+     * @throws IllegalStateException    If the replay is closed
+     */
+    public Playback play(Plugin plugin, Location origin, double range) throws IllegalArgumentException, IllegalStateException {
+        if (range < 1) {
+            throw new IllegalArgumentException("The range is lower than 1");
+        }
+        Playback playback = open(origin, range);
+        playback.task = Bukkit.getScheduler().runTaskTimer(plugin, playback, 0, 1);
+        return playback;
+    }
+
+    /**
+     * Creates a playback which is not scheduled yet
+     *
+     * @param origin Origin of the playback
+     * @param range  Range of the visibility
+     * @return The playback
+     * @throws IllegalStateException If the replay is closed
+     */
+    Playback open(Location origin, double range) throws IllegalStateException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("The replay is closed");
+            }
+            // Every playback reads through its own view of the shared mapping
+            ByteBuffer buffer = mapping.duplicate();
+            buffer.position(mapping.position());
+            playing++;
+            return new Playback(this, buffer, origin.clone(), range, origin.getX() - originX, origin.getY() - originY, origin.getZ() - originZ);
+        }
+    }
+
+    /**
+     * Closes this replay, the mapping is released once no playback is running anymore
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            release();
+        }
+    }
+
+    /**
+     * Called when a playback ends, releases the mapping if it was the last playback of a closed replay
+     */
+    private void ended() {
+        synchronized (lock) {
+            playing--;
+            release();
+        }
+    }
+
+    private void release() {
+        if (!closed || playing > 0 || released) {
+            return;
+        }
+        released = true;
+        unmap(mapping);
+    }
+
+    /**
+     * Unmaps a buffer right away instead of waiting for it to be garbage collected, which also unlocks the file on Windows
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                // Java 9+
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException exception) {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            // The mapping is released by the garbage collector instead
+        }
+    }
+
+    /**
+     * Represents a running playback of a recording
+     */
+    public static final class Playback implements Runnable {
+        private final ParticleReplay replay;
+        private final ByteBuffer buffer;
+        private final Location origin;
+        private final double range;
+        private final double offsetX;
+        private final double offsetY;
+        private final double offsetZ;
+        private final List<ParticleTemplate> templates = new ArrayList<>();
+        private BukkitTask task;
+        private long tick;
+        private long nextTick;
+        private long x;
+        private long y;
+        private long z;
+        private int pending = -1;
+        private volatile boolean finished;
+
+        Playback(ParticleReplay replay, ByteBuffer buffer, Location origin, double range, double offsetX, double offsetY, double offsetZ) {
+            this.replay = replay;
+            this.buffer = buffer;
+            this.origin = origin;
+            this.range = range;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.offsetZ = offsetZ;
+            this.x = Math.round((origin.getX() - offsetX) * ParticleRecorder.SCALE);
+            this.y = Math.round((origin.getY() - offsetY) * ParticleRecorder.SCALE);
+            this.z = Math.round((origin.getZ() - offsetZ) * ParticleRecorder.SCALE);
+        }
+
+        /**
+         * Stops this playback
+         */
+        public void stop() {
+            synchronized (replay.lock) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            if (task != null) {
+                task.cancel();
+            }
+            replay.ended();
+        }
+
+        /**
+         * Determine if this playback has ended or was stopped
+         *
+         * @return Whether the playback is finished or not
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public void run() {
+            if (finished) {
+                stop();
+                return;
+            }
+            ParticleBatch batch = next();
+            if (!batch.isEmpty()) {
+                batch.send(range);
+            }
+        }
+
+        /**
+         * Reads the entries of the current tick and advances to the next tick
+         *
+         * @return The batch of the entries, which is not recorded again
+         */
+        ParticleBatch next() {
+            ParticleBatch batch = new ParticleBatch(origin.getWorld()).skipCapture();
+            // Reading is done under the lock, so the mapping cannot be released in between
+            synchronized (replay.lock) {
+                if (!finished) {
+                    read(batch);
+                }
+            }
+            tick++;
+            return batch;
+        }
+
+        private void read(ParticleBatch batch) {
+            try {
+                while (true) {
+                    if (pending < 0 && !readNext()) {
+                        stop();
+                        break;
+                    }
+                    if (nextTick > tick) {
+                        break;
+                    }
+                    batch.add(templates.get(pending), x / ParticleRecorder.SCALE + offsetX, y / ParticleRecorder.SCALE + offsetY, z / ParticleRecorder.SCALE + offsetZ);
+                    pending = -1;
+                }
+            } catch (RuntimeException exception) {
+                // A corrupt recording cannot be resumed
+                exception.printStackTrace();
+                stop();
+            }
+        }
+
+        /**
+         * Reads entries until the next display entry, which becomes pending
+         *
+         * @return Whether a display entry was read or the recording ended
+         */
+        private boolean readNext() {
+            while (buffer.hasRemaining()) {
+                int type = buffer.get();
+                if (type == ParticleRecorder.DEFINE) {
+                    ParticlePacket packet = ParticlePacket.readAttributes(buffer);
+                    templates.add(new ParticleTemplate(packet.getEffect(), packet));
+                    continue;
+                }
+                nextTick += readVarLong();
+                pending = (int) readVarLong();
+                x += zigZag(readVarLong());
+                y += zigZag(readVarLong());
+                z += zigZag(readVarLong());
+                return true;
+            }
+            return false;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte read;
+            do {
+                read = buffer.get();
+                value |= (long) (read & 0x7F) << shift;
+                shift += 7;
+            } while ((read & 0x80) != 0);
+            return value;
+        }
+
+        private static long zigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queues particle frames and sends them from a repeating task under a per-tick budget
+ * <p>
+ * Each tick the queued frames are sent by priority (and in submission order within a priority) until either the time budget or the packet budget is used up, the rest stays queued for the next tick.
+ * Frames which waited longer than their maximum age are dropped instead of being sent late, so particle load degrades instead of causing lag spikes
+ * <p>
+ * <b>Note:</b> Frames can be submitted from any thread, but they are always sent on the main thread
+ */
+public final class ParticleScheduler {
+    private static final ParticleScheduler instance = new ParticleScheduler();
+    private final PriorityQueue<Frame> queue = new PriorityQueue<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long sequence;
+    // Written under the queue lock, volatile so the tick can be read without it
+    private volatile long tick;
+    private volatile long timeBudget = 2_000_000L;
+    private volatile int packetBudget = 5000;
+    private volatile int defaultMaxAge = 5;
+    private volatile boolean active;
+
+    // Prevent accidental construction
+    private ParticleScheduler() {
+    }
+
+    public static ParticleScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts the repeating task which drains the queue every tick
+     *
+     * @param plugin Plugin which owns the task
+     */
+    public void enable(Plugin plugin) {
+        if (active) {
+            return;
+        }
+        Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, 1, 1);
+        active = true;
+    }
+
+    /**
+     * Determine if the repeating task of the scheduler is running
+     *
+     * @return Whether submitted frames will be sent or not
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Sets the time which may be spent sending frames per tick
+     *
+     * @param millis Time budget in milliseconds
+     * @throws IllegalArgumentException If the budget is not positive
+     */
+    public void setTimeBudget(double millis) throws IllegalArgumentException {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("The time budget is not positive");
+        }
+        timeBudget = (long) (millis * 1_000_000D);
+    }
+
+    /**
+     * Sets the amount of packets which may be sent per tick
+     *
+     * @param packets Packet budget
+     * @throws IllegalArgumentException If the budget is lower than 1
+     */
+    public void setPacketBudget(int packets) throws IllegalArgumentException {
+        if (packets < 1) {
+            throw new IllegalArgumentException("The packet budget is lower than 1");
+        }
+        packetBudget = packets;
+    }
+
+    /**
+     * Sets the maximum age of frames which are submitted without one
+     *
+     * @param ticks Maximum amount of ticks a frame may wait before it is dropped
+     * @throws IllegalArgumentException If the age is negative
+     */
+    public void setDefaultMaxAge(int ticks) throws IllegalArgumentException {
+        if (ticks < 0) {
+            throw new IllegalArgumentException("The maximum age is negative");
+        }
+        defaultMaxAge = ticks;
+    }
+
+    /**
+     * Queues a batch which is sent to all players within a certain range of it
+     *
+     * @param batch    Batch to send, it must not be modified until it was sent
+     * @param range    Range of the visibility
+     * @param priority Priority of the frame
+     * @throws IllegalArgumentException If the range is lower than 1
+     * @see ParticleBatch#send(double)
+     */
+    public void submit(ParticleBatch batch, double range, Priority priority) throws IllegalArgumentException {
+        submit(batch, range, priority, defaultMaxAge);
+    }
+
+    /**
+     * Queues a batch which is sent to all players within a certain range of it
+     *
+     * @param batch    Batch to send, it must not be modified until it was sent
+     * @param range    Range of the visibility
+     * @param priority Priority of the frame
+     * @param maxAge   Maximum amount of ticks the frame may wait before it is dropped
+     * @throws IllegalArgumentException If the range is lower than 1
+     * @see ParticleBatch#send(double)
+     */
+    public void submit(ParticleBatch batch, double range, Priority priority, int maxAge) throws IllegalArgumentException {
+        if (range < 1) {
+            throw new IllegalArgumentException("The range is lower than 1");
+        }
+        enqueue(batch, range, null, priority, maxAge);
+    }
+
+    /**
+     * Queues a batch which is sent to the specified players
+     *
+     * @param batch    Batch to send, it must not be modified until it was sent
+     * @param players  Receivers of the effects
+     * @param priority Priority of the frame
+     * @see ParticleBatch#send(List)
+     */
+    public void submit(ParticleBatch batch, List<Player> players, Priority priority) {
+        enqueue(batch, -1, new ArrayList<>(players), priority, defaultMaxAge);
+    }
+
+    /**
+     * Queues a single particle effect which is sent to all players within a certain range of it
+     *
+     * @param template Template of the effect
+     * @param center   Center location of the effect
+     * @param range    Range of the visibility
+     * @param priority Priority of the frame
+     * @throws IllegalArgumentException If the range is lower than 1 or the particle effect requires water and none is at the center location
+     */
+    public void submit(ParticleTemplate template, Location center, double range, Priority priority) throws IllegalArgumentException {
+        submit(new ParticleBatch(center.getWorld()).add(template, center), range, priority);
+    }
+
+    /**
+     * Returns the amount of frames waiting to be sent
+     *
+     * @return The queue size
+     */
+    public int getQueued() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Returns the amount of packets sent by the scheduler
+     *
+     * @return The amount of sent packets
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * Returns the amount of frames dropped because they were too old
+     *
+     * @return The amount of dropped frames
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void enqueue(ParticleBatch batch, double range, List<Player> players, Priority priority, int maxAge) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        synchronized (queue) {
+            // Frames are sent on the next tick at the earliest, so the age is counted from there
+            queue.add(new Frame(batch, range, players, priority, sequence++, tick + 1 + maxAge));
+        }
+    }
+
+    /**
+     * Returns the amount of server ticks since the scheduler was enabled, which keeps counting ticks and not time when the server lags
+     *
+     * @return The tick number
+     */
+    static long currentTick() {
+        return instance.tick;
+    }
+
+    /**
+     * Sends queued frames until the budget of this tick is used up
+     */
+    private void drain() {
+        long start = System.nanoTime();
+        long deadline = start + timeBudget;
+        int packets = packetBudget;
+        int spent = 0;
+        long current;
+        synchronized (queue) {
+            current = ++tick;
+        }
+        while (true) {
+            Frame frame;
+            synchronized (queue) {
+                frame = queue.poll();
+            }
+            if (frame == null) {
+                break;
+            }
+            if (frame.expiry < current) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            try {
+                spent += frame.players == null ? frame.batch.send(frame.range) : frame.batch.send(frame.players);
+            } catch (RuntimeException exception) {
+                exception.printStackTrace();
+            }
+            // The budget is checked after sending, so at least one frame is sent per tick
+            if (spent >= packets || System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        sent.addAndGet(spent);
+    }
+
+    /**
+     * Represents the priority of a queued frame
+     */
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    /**
+     * Represents a queued batch together with its receivers
+     */
+    private static final class Frame implements Comparable<Frame> {
+        private final ParticleBatch batch;
+        private final double range;
+        private final List<Player> players;
+        private final Priority priority;
+        private final long sequence;
+        private final long expiry;
+
+        Frame(ParticleBatch batch, double range, List<Player> players, Priority priority, long sequence, long expiry) {
+            this.batch = batch;
+            this.range = range;
+            this.players = players;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.expiry = expiry;
+        }
+
+        @Override
+        public int compareTo(Frame other) {
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
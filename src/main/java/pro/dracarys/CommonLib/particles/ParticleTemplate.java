@@ -0,0 +1,119 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticleProperty;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a prebuilt particle effect whose attributes are validated and resolved once, so displaying it only sets the center location
+ * <p>
+ * Templates are created through the <code>createTemplate</code> methods of {@link ParticleEffect} and can be displayed any number of times
+ */
+public final class ParticleTemplate {
+    private final ParticleEffect effect;
+    private final ParticlePacket prototype;
+
+    /**
+     * Construct a new particle template
+     *
+     * @param effect    Particle effect
+     * @param prototype Particle packet holding the attributes of the effect
+     */
+    ParticleTemplate(ParticleEffect effect, ParticlePacket prototype) {
+        this.effect = effect;
+        this.prototype = prototype;
+        prototype.resolve();
+    }
+
+    /**
+     * Returns the particle effect of this template
+     *
+     * @return The particle effect
+     */
+    public ParticleEffect getEffect() {
+        return effect;
+    }
+
+    /**
+     * Determine if this template is displayed through the {@link NativeParticleBackend}
+     *
+     * @param longDistance Indicates whether the maximum distance is increased from 256 to 65536
+     * @return Whether the effect is displayed natively or not
+     */
+    boolean isNative(boolean longDistance) {
+        return NativeParticleBackend.displays(effect, longDistance);
+    }
+
+    /**
+     * Displays this template to all players within a certain range in the world of @param center
+     *
+     * @param center Center location of the effect
+     * @param range  Range of the visibility
+     * @throws IllegalArgumentException If the particle effect requires water and none is at the center location
+     * @see ParticlePacket#sendTo(Location, double)
+     */
+    public void display(Location center, double range) throws IllegalArgumentException {
+        checkWater(center);
+        newPacket(range > 256).sendTo(center, range);
+    }
+
+    /**
+     * Displays this template to the specified players
+     *
+     * @param center  Center location of the effect
+     * @param players Receivers of the effect
+     * @throws IllegalArgumentException If the particle effect requires water and none is at the center location
+     * @see ParticlePacket#sendTo(Location, List)
+     */
+    public void display(Location center, List<Player> players) throws IllegalArgumentException {
+        checkWater(center);
+        newPacket(ParticleEffect.isLongDistance(center, players)).sendTo(center, players);
+    }
+
+    /**
+     * Displays this template to the specified players
+     *
+     * @param center  Center location of the effect
+     * @param players Receivers of the effect
+     * @throws IllegalArgumentException If the particle effect requires water and none is at the center location
+     * @see #display(Location, List)
+     */
+    public void display(Location center, Player... players) throws IllegalArgumentException {
+        display(center, Arrays.asList(players));
+    }
+
+    /**
+     * Displays this template at every point of a shape to all players within a certain range of it
+     *
+     * @param world     World of the shape
+     * @param points    Points of the shape
+     * @param transform Transform which places the points in the world
+     * @param range     Range of the visibility
+     * @throws IllegalArgumentException If the range is lower than 1 or the particle effect requires water and none is at one of the points
+     * @see ParticleBatch#add(ParticleTemplate, PointBuffer, Transform)
+     */
+    public void display(World world, PointBuffer points, Transform transform, double range) throws IllegalArgumentException {
+        new ParticleBatch(world).add(this, points, transform).send(range);
+    }
+
+    /**
+     * Creates a new particle packet with the attributes of this template
+     *
+     * @param longDistance Indicates whether the maximum distance is increased from 256 to 65536
+     * @return The particle packet
+     */
+    ParticlePacket newPacket(boolean longDistance) {
+        return new ParticlePacket(prototype, longDistance);
+    }
+
+    void checkWater(Location center) throws IllegalArgumentException {
+        if (effect.hasProperty(ParticleProperty.REQUIRES_WATER) && !ParticleEffect.isWater(center)) {
+            throw new IllegalArgumentException("There is no water at the center location");
+        }
+    }
+}
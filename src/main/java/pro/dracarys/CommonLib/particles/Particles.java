@@ -7,8 +7,6 @@ import org.bukkit.entity.Player;
 import pro.dracarys.CommonLib.CommonLib;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
 
 public class Particles {
 
@@ -38,20 +36,10 @@ public class Particles {
     }
 
     public java.util.List<Location> getHollowCube(String world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
-        List<Location> result = new ArrayList<>();
-        for (float x = minX; x <= maxX; x += .5) {
-            for (float y = minY; y <= maxY; y += .5) {
-                for (float z = minZ; z <= maxZ; z += .5) {
-                    int components = 0;
-                    if (x == minX || x == maxX) components++;
-                    if (y == minY || y == maxY) components++;
-                    if (z == minZ || z == maxZ) components++;
-                    if (components >= 2) {
-                        result.add(new Location(Bukkit.getWorld(world), x, y, z));
-                    }
-                }
-            }
+        if (maxX < minX || maxY < minY || maxZ < minZ) {
+            // Inverted bounds enclose no points
+            return new java.util.ArrayList<>();
         }
-        return result;
+        return Shapes.cubeEdges(maxX - minX, maxY - minY, maxZ - minZ, .5).toLocations(Bukkit.getWorld(world), minX, minY, minZ);
     }
 }
@@ -0,0 +1,232 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial index of the online players, bucketed per world and chunk
+ * <p>
+ * The index is kept up to date from movement events and a periodic resync for players moved without events (e.g. riding vehicles), range queries only look at the chunks around the center and then check the exact distance
+ */
+public final class PlayerIndex implements Listener {
+    private static final PlayerIndex instance = new PlayerIndex();
+    // Players are bucketed by their last known chunk, so queries look one chunk further to cover movement since the last update
+    private static final int MARGIN = 1;
+    private static final long RESYNC_PERIOD = 20;
+    private final Map<UUID, Map<Long, Set<Player>>> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, Cell> cells = new ConcurrentHashMap<>();
+    private volatile boolean active;
+
+    // Prevent accidental construction
+    private PlayerIndex() {
+    }
+
+    public static PlayerIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers the listeners of the index, indexes all online players and starts the periodic resync
+     *
+     * @param plugin Plugin which owns the listeners and the resync task
+     */
+    public void enable(Plugin plugin) {
+        if (active) {
+            return;
+        }
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+            @Override
+            public void run() {
+                resync();
+            }
+        }, RESYNC_PERIOD, RESYNC_PERIOD);
+        resync();
+        active = true;
+    }
+
+    /**
+     * Determine if the index is registered and kept up to date
+     *
+     * @return Whether range queries can use the index or not
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Returns all players within a certain range in the world of @param center
+     *
+     * @param center Center location
+     * @param range  Range around the center
+     * @return The players in range
+     */
+    public List<Player> getNearbyPlayers(Location center, double range) {
+        List<Player> result = new ArrayList<>();
+        World world = center.getWorld();
+        Map<Long, Set<Player>> chunks = worlds.get(world.getUID());
+        if (chunks == null || chunks.isEmpty()) {
+            return result;
+        }
+        double x = center.getX();
+        double z = center.getZ();
+        double squared = range * range;
+        int minX = ((int) Math.floor(x - range) >> 4) - MARGIN;
+        int maxX = ((int) Math.floor(x + range) >> 4) + MARGIN;
+        int minZ = ((int) Math.floor(z - range) >> 4) - MARGIN;
+        int maxZ = ((int) Math.floor(z + range) >> 4) + MARGIN;
+        Location scratch = new Location(world, 0, 0, 0);
+        if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > chunks.size()) {
+            // Fewer occupied chunks than chunks in range, walk the occupied ones instead
+            for (Map.Entry<Long, Set<Player>> entry : chunks.entrySet()) {
+                long key = entry.getKey();
+                int chunkX = (int) (key >> 32);
+                int chunkZ = (int) key;
+                if (chunkX >= minX && chunkX <= maxX && chunkZ >= minZ && chunkZ <= maxZ) {
+                    collect(entry.getValue(), center, squared, scratch, result);
+                }
+            }
+            return result;
+        }
+        for (int chunkX = minX; chunkX <= maxX; chunkX++) {
+            for (int chunkZ = minZ; chunkZ <= maxZ; chunkZ++) {
+                Set<Player> players = chunks.get(key(chunkX, chunkZ));
+                if (players != null) {
+                    collect(players, center, squared, scratch, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void collect(Set<Player> players, Location center, double squared, Location scratch, List<Player> result) {
+        for (Player player : players) {
+            player.getLocation(scratch);
+            if (scratch.getWorld() == center.getWorld() && scratch.distanceSquared(center) <= squared) {
+                result.add(player);
+            }
+        }
+    }
+
+    private static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Moves a player to the bucket of the given location if it changed
+     *
+     * @param player   Player to update
+     * @param location Current location of the player
+     */
+    private void update(Player player, Location location) {
+        UUID world = location.getWorld().getUID();
+        long key = key(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        Cell cell = cells.get(player.getUniqueId());
+        if (cell != null) {
+            if (cell.key == key && cell.world.equals(world)) {
+                return;
+            }
+            removeFromBucket(player, cell);
+        }
+        Map<Long, Set<Player>> chunks = worlds.computeIfAbsent(world, uuid -> new ConcurrentHashMap<>());
+        chunks.computeIfAbsent(key, chunk -> ConcurrentHashMap.newKeySet()).add(player);
+        cells.put(player.getUniqueId(), new Cell(world, key));
+    }
+
+    private void remove(Player player) {
+        Cell cell = cells.remove(player.getUniqueId());
+        if (cell != null) {
+            removeFromBucket(player, cell);
+        }
+    }
+
+    private void removeFromBucket(Player player, Cell cell) {
+        Map<Long, Set<Player>> chunks = worlds.get(cell.world);
+        if (chunks == null) {
+            return;
+        }
+        Set<Player> players = chunks.get(cell.key);
+        if (players != null) {
+            players.remove(player);
+            if (players.isEmpty()) {
+                chunks.remove(cell.key, players);
+            }
+        }
+    }
+
+    private void resync() {
+        Location scratch = new Location(null, 0, 0, 0);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            update(player, player.getLocation(scratch));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        update(event.getPlayer(), event.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        remove(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent event) {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to == null || (from.getBlockX() >> 4 == to.getBlockX() >> 4 && from.getBlockZ() >> 4 == to.getBlockZ() >> 4 && from.getWorld() == to.getWorld())) {
+            return;
+        }
+        update(event.getPlayer(), to);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent event) {
+        if (event.getTo() != null) {
+            update(event.getPlayer(), event.getTo());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        update(event.getPlayer(), event.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        update(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    /**
+     * Represents the bucket a player is currently indexed in
+     */
+    private static final class Cell {
+        private final UUID world;
+        private final long key;
+
+        Cell(UUID world, long key) {
+            this.world = world;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents an immutable set of points packed into a single <code>double</code> array (x, y and z of every point after each other)
+ * <p>
+ * Buffers returned by {@link Shapes} are relative to the origin of the shape and shared between callers, they are placed in the world by offsetting them while iterating
+ */
+public final class PointBuffer {
+    private final double[] points;
+    private final int size;
+
+    /**
+     * Construct a new point buffer
+     *
+     * @param points Packed coordinates, the array is not copied and must not be modified afterwards
+     * @param size   Amount of points in the array
+     */
+    PointBuffer(double[] points, int size) {
+        this.points = points;
+        this.size = size;
+    }
+
+    /**
+     * Returns the amount of points in this buffer
+     *
+     * @return The amount of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the x-coordinate of a point
+     *
+     * @param index Index of the point
+     * @return The x-coordinate
+     */
+    public double getX(int index) {
+        return points[index * 3];
+    }
+
+    /**
+     * Returns the y-coordinate of a point
+     *
+     * @param index Index of the point
+     * @return The y-coordinate
+     */
+    public double getY(int index) {
+        return points[index * 3 + 1];
+    }
+
+    /**
+     * Returns the z-coordinate of a point
+     *
+     * @param index Index of the point
+     * @return The z-coordinate
+     */
+    public double getZ(int index) {
+        return points[index * 3 + 2];
+    }
+
+    /**
+     * Returns the packed coordinates without copying them, they must not be modified
+     *
+     * @return The packed coordinates
+     */
+    double[] getPoints() {
+        return points;
+    }
+
+    /**
+     * Returns a copy of the packed coordinates
+     *
+     * @return The packed coordinates
+     */
+    public double[] toArray() {
+        double[] copy = new double[size * 3];
+        System.arraycopy(points, 0, copy, 0, copy.length);
+        return copy;
+    }
+
+    /**
+     * Returns a new buffer with every point moved by the given offset
+     *
+     * @param x Offset on the x-axis
+     * @param y Offset on the y-axis
+     * @param z Offset on the z-axis
+     * @return The translated buffer
+     */
+    public PointBuffer translate(double x, double y, double z) {
+        double[] translated = new double[size * 3];
+        for (int offset = 0; offset < translated.length; offset += 3) {
+            translated[offset] = points[offset] + x;
+            translated[offset + 1] = points[offset + 1] + y;
+            translated[offset + 2] = points[offset + 2] + z;
+        }
+        return new PointBuffer(translated, size);
+    }
+
+    /**
+     * Adds a particle effect at every point of this buffer, moved by the given offset, to a batch
+     *
+     * @param batch    Batch to add the effects to
+     * @param template Template of the effect
+     * @param x        Offset on the x-axis
+     * @param y        Offset on the y-axis
+     * @param z        Offset on the z-axis
+     * @return The batch
+     */
+    public ParticleBatch addTo(ParticleBatch batch, ParticleTemplate template, double x, double y, double z) {
+        for (int offset = 0, length = size * 3; offset < length; offset += 3) {
+            batch.add(template, points[offset] + x, points[offset + 1] + y, points[offset + 2] + z);
+        }
+        return batch;
+    }
+
+    /**
+     * Returns a location for every point of this buffer, moved by the given offset
+     *
+     * @param world World of the locations
+     * @param x     Offset on the x-axis
+     * @param y     Offset on the y-axis
+     * @param z     Offset on the z-axis
+     * @return The locations
+     */
+    public List<Location> toLocations(World world, double x, double y, double z) {
+        List<Location> locations = new ArrayList<>(size);
+        for (int offset = 0, length = size * 3; offset < length; offset += 3) {
+            locations.add(new Location(world, points[offset] + x, points[offset + 1] + y, points[offset + 2] + z));
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,154 @@
+package pro.dracarys.CommonLib.particles;
+
+/**
+ * Represents an immutable rotation as a unit quaternion
+ * <p>
+ * Quaternions combine and interpolate rotations without gimbal lock, they are turned into a {@link Transform} once to rotate whole point buffers
+ */
+public final class Quaternion {
+    public static final Quaternion IDENTITY = new Quaternion(1, 0, 0, 0);
+    private final double w;
+    private final double x;
+    private final double y;
+    private final double z;
+
+    /**
+     * Construct a new quaternion, it is normalized
+     *
+     * @param w Real part
+     * @param x Imaginary x-component
+     * @param y Imaginary y-component
+     * @param z Imaginary z-component
+     * @throws IllegalArgumentException If all components are 0
+     */
+    public Quaternion(double w, double x, double y, double z) throws IllegalArgumentException {
+        double length = Math.sqrt(w * w + x * x + y * y + z * z);
+        if (length == 0) {
+            throw new IllegalArgumentException("The quaternion has no length");
+        }
+        this.w = w / length;
+        this.x = x / length;
+        this.y = y / length;
+        this.z = z / length;
+    }
+
+    /**
+     * Returns a rotation around an axis
+     *
+     * @param axisX X-component of the axis
+     * @param axisY Y-component of the axis
+     * @param axisZ Z-component of the axis
+     * @param angle Angle of the rotation in radians
+     * @return The rotation
+     * @throws IllegalArgumentException If the axis has no length
+     */
+    public static Quaternion fromAxisAngle(double axisX, double axisY, double axisZ, double angle) throws IllegalArgumentException {
+        double length = Math.sqrt(axisX * axisX + axisY * axisY + axisZ * axisZ);
+        if (length == 0) {
+            throw new IllegalArgumentException("The axis has no length");
+        }
+        double sin = Math.sin(angle / 2) / length;
+        return new Quaternion(Math.cos(angle / 2), axisX * sin, axisY * sin, axisZ * sin);
+    }
+
+    /**
+     * Returns a rotation from yaw, pitch and roll as used by Minecraft (yaw around the y-axis, pitch around the x-axis, roll around the z-axis)
+     *
+     * @param yaw   Yaw in radians
+     * @param pitch Pitch in radians
+     * @param roll  Roll in radians
+     * @return The rotation
+     */
+    public static Quaternion fromEuler(double yaw, double pitch, double roll) {
+        return fromAxisAngle(0, 1, 0, yaw).multiply(fromAxisAngle(1, 0, 0, pitch)).multiply(fromAxisAngle(0, 0, 1, roll));
+    }
+
+    /**
+     * Returns the rotation which applies the other rotation first and then this one
+     *
+     * @param other Rotation which is applied first
+     * @return The combined rotation
+     */
+    public Quaternion multiply(Quaternion other) {
+        return new Quaternion(
+                w * other.w - x * other.x - y * other.y - z * other.z,
+                w * other.x + x * other.w + y * other.z - z * other.y,
+                w * other.y - x * other.z + y * other.w + z * other.x,
+                w * other.z + x * other.y - y * other.x + z * other.w);
+    }
+
+    /**
+     * Returns the opposite rotation
+     *
+     * @return The inverse rotation
+     */
+    public Quaternion inverse() {
+        return new Quaternion(w, -x, -y, -z);
+    }
+
+    /**
+     * Returns the spherical interpolation between this rotation and another one
+     *
+     * @param other    Rotation at progress 1
+     * @param progress Progress of the interpolation between 0 and 1
+     * @return The interpolated rotation
+     */
+    public Quaternion slerp(Quaternion other, double progress) {
+        double dot = w * other.w + x * other.x + y * other.y + z * other.z;
+        double sign = 1;
+        if (dot < 0) {
+            // Take the shorter way around
+            dot = -dot;
+            sign = -1;
+        }
+        double from, to;
+        if (dot > 0.9995) {
+            // The rotations are almost equal, linear interpolation is precise enough and avoids dividing by 0
+            from = 1 - progress;
+            to = progress;
+        } else {
+            double angle = Math.acos(dot);
+            double sin = Math.sin(angle);
+            from = Math.sin((1 - progress) * angle) / sin;
+            to = Math.sin(progress * angle) / sin;
+        }
+        to *= sign;
+        return new Quaternion(w * from + other.w * to, x * from + other.x * to, y * from + other.y * to, z * from + other.z * to);
+    }
+
+    /**
+     * Returns the real part of this quaternion
+     *
+     * @return The real part
+     */
+    public double getW() {
+        return w;
+    }
+
+    /**
+     * Returns the imaginary x-component of this quaternion
+     *
+     * @return The x-component
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the imaginary y-component of this quaternion
+     *
+     * @return The y-component
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the imaginary z-component of this quaternion
+     *
+     * @return The z-component
+     */
+    public double getZ() {
+        return z;
+    }
+}
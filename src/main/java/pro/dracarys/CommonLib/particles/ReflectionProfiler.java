@@ -0,0 +1,236 @@
+package pro.dracarys.CommonLib.particles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in profiler for the reflective calls made by {@link ReflectionUtils} and the packet senders of CommonLib
+ * <p>
+ * While disabled, {@link #start()} returns a sentinel and {@link #record(String, long)} returns immediately, so the instrumented paths only pay a volatile read
+ */
+public final class ReflectionProfiler {
+    private static final long DISABLED = Long.MIN_VALUE;
+    private static final Map<String, MemberStats> MEMBERS = new ConcurrentHashMap<String, MemberStats>();
+    private static final Map<String, CacheStats> CACHES = new ConcurrentHashMap<String, CacheStats>();
+    private static volatile boolean enabled;
+
+    // Prevent accidental construction
+    private ReflectionProfiler() {
+    }
+
+    /**
+     * Determine if the profiler is recording
+     *
+     * @return Whether the profiler is enabled or not
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables recording, recorded statistics are kept until {@link #reset()} is called
+     *
+     * @param enabled Whether the profiler should record or not
+     */
+    public static void setEnabled(boolean enabled) {
+        ReflectionProfiler.enabled = enabled;
+    }
+
+    /**
+     * Clears all recorded statistics
+     */
+    public static void reset() {
+        MEMBERS.clear();
+        CACHES.clear();
+    }
+
+    /**
+     * Returns the start timestamp of a profiled call
+     *
+     * @return The current nano time or a sentinel if the profiler is disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * Records a profiled call which started at the given timestamp
+     *
+     * @param member Name of the invoked member
+     * @param start  Timestamp returned by {@link #start()}
+     */
+    public static void record(String member, long start) {
+        if (start == DISABLED) {
+            return;
+        }
+        getStats(member).add(System.nanoTime() - start);
+    }
+
+    /**
+     * Records a profiled call of a member of the given class which started at the given timestamp
+     * <p>
+     * The member name is only built if the call is recorded
+     *
+     * @param owner  Class declaring the invoked member
+     * @param member Name of the invoked member
+     * @param start  Timestamp returned by {@link #start()}
+     */
+    public static void record(Class<?> owner, String member, long start) {
+        if (start == DISABLED) {
+            return;
+        }
+        getStats(owner.getSimpleName() + "#" + member).add(System.nanoTime() - start);
+    }
+
+    /**
+     * Records a lookup in one of the reflection caches
+     *
+     * @param cache Name of the cache
+     * @param hit   Whether the lookup was served from the cache or not
+     */
+    public static void recordLookup(String cache, boolean hit) {
+        if (!enabled) {
+            return;
+        }
+        CacheStats stats = CACHES.get(cache);
+        if (stats == null) {
+            CacheStats created = new CacheStats();
+            stats = CACHES.putIfAbsent(cache, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        (hit ? stats.hits : stats.misses).increment();
+    }
+
+    private static MemberStats getStats(String member) {
+        MemberStats stats = MEMBERS.get(member);
+        if (stats == null) {
+            MemberStats created = new MemberStats();
+            stats = MEMBERS.putIfAbsent(member, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the recorded statistics of all profiled members
+     *
+     * @return A snapshot of the member statistics
+     */
+    public static Map<String, MemberStats> getMemberStats() {
+        return Collections.unmodifiableMap(new HashMap<String, MemberStats>(MEMBERS));
+    }
+
+    /**
+     * Returns the recorded statistics of all reflection caches
+     *
+     * @return A snapshot of the cache statistics
+     */
+    public static Map<String, CacheStats> getCacheStats() {
+        return Collections.unmodifiableMap(new HashMap<String, CacheStats>(CACHES));
+    }
+
+    /**
+     * Returns the profiled members ordered by their cumulative time, slowest first
+     *
+     * @param limit Maximum amount of members to return
+     * @return The slowest members
+     */
+    public static List<Map.Entry<String, MemberStats>> getSlowest(int limit) {
+        List<Map.Entry<String, MemberStats>> entries = new ArrayList<Map.Entry<String, MemberStats>>(MEMBERS.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, MemberStats>>() {
+            @Override
+            public int compare(Map.Entry<String, MemberStats> first, Map.Entry<String, MemberStats> second) {
+                return Long.compare(second.getValue().getTotalNanos(), first.getValue().getTotalNanos());
+            }
+        });
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    /**
+     * Represents the recorded invocations of a single member
+     */
+    public static final class MemberStats {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void add(long elapsed) {
+            invocations.increment();
+            nanos.add(elapsed);
+        }
+
+        /**
+         * Returns the amount of recorded invocations
+         *
+         * @return The invocation count
+         */
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        /**
+         * Returns the cumulative time spent in the recorded invocations
+         *
+         * @return The total time in nanoseconds
+         */
+        public long getTotalNanos() {
+            return nanos.sum();
+        }
+
+        /**
+         * Returns the average time of a recorded invocation
+         *
+         * @return The average time in nanoseconds
+         */
+        public double getAverageNanos() {
+            long count = getInvocations();
+            return count == 0 ? 0 : (double) getTotalNanos() / count;
+        }
+    }
+
+    /**
+     * Represents the recorded lookups of a reflection cache
+     */
+    public static final class CacheStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        /**
+         * Returns the amount of lookups served from the cache
+         *
+         * @return The hit count
+         */
+        public long getHits() {
+            return hits.sum();
+        }
+
+        /**
+         * Returns the amount of lookups which had to be resolved
+         *
+         * @return The miss count
+         */
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * Returns the share of lookups served from the cache
+         *
+         * @return The hit ratio between 0 and 1
+         */
+        public double getHitRatio() {
+            long hitCount = getHits();
+            long total = hitCount + getMisses();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+    }
+}
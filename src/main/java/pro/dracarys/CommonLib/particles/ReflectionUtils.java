@@ -2,18 +2,65 @@ package pro.dracarys.CommonLib.particles;
 
 import org.bukkit.Bukkit;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class ReflectionUtils {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<AbstractKey, Object> MEMBER_CACHE = new ConcurrentHashMap<AbstractKey, Object>();
+    private static final ThreadLocal<LookupKey> LOOKUP_KEY = new ThreadLocal<LookupKey>() {
+        @Override
+        protected LookupKey initialValue() {
+            return new LookupKey();
+        }
+    };
+    private static final Map<String, Object> CLASS_CACHE = new ConcurrentHashMap<String, Object>();
+    // Stored in the member and class caches for lookups that did not resolve, so they are not repeated
+    private static final Object MISSING = new Object();
+    private static final String CONSTRUCTOR_NAME = "<init>";
+    private static volatile String serverVersion;
+
     // Prevent accidental construction
     private ReflectionUtils() {
     }
 
+    /**
+     * Returns the class with the given fully qualified name
+     * <p>
+     * <b>Note:</b> The result is cached, including classes that could not be found, so every name is only looked up once
+     *
+     * @param className Fully qualified name of the desired class
+     * @return The class with the specified name
+     * @throws ClassNotFoundException If the desired class with the specified name cannot be found
+     */
+    public static Class<?> forName(String className) throws ClassNotFoundException {
+        Object cached = CLASS_CACHE.get(className);
+        ReflectionProfiler.recordLookup("classes", cached != null);
+        if (cached == null) {
+            try {
+                cached = Class.forName(className);
+            } catch (ClassNotFoundException exception) {
+                cached = MISSING;
+            }
+            CLASS_CACHE.put(className, cached);
+        }
+        if (cached == MISSING) {
+            throw new ClassNotFoundException(className);
+        }
+        return (Class<?>) cached;
+    }
+
     /**
      * Returns the constructor of a given class with the given parameter types
      *
@@ -26,14 +73,23 @@ public final class ReflectionUtils {
      * @see DataType#compare(Class[], Class[])
      */
     public static Constructor<?> getConstructor(Class<?> clazz, Class<?>... parameterTypes) throws NoSuchMethodException {
-        Class<?>[] primitiveTypes = DataType.getPrimitive(parameterTypes);
-        for (Constructor<?> constructor : clazz.getConstructors()) {
-            if (!DataType.compare(DataType.getPrimitive(constructor.getParameterTypes()), primitiveTypes)) {
-                continue;
-            }
-            return constructor;
-        }
-        throw new NoSuchMethodException("There is no such constructor in this class with the specified parameter types");
+        return (Constructor<?>) resolve(clazz, CONSTRUCTOR_NAME, parameterTypes).member;
+    }
+
+    /**
+     * Returns a cached method handle for the constructor of a given class with the given parameter types
+     * <p>
+     * The handle has the type <code>(Object[])Object</code> and takes the constructor arguments as an array
+     *
+     * @param clazz          Target class
+     * @param parameterTypes Parameter types of the desired constructor
+     * @return The method handle of the constructor of the target class with the specified parameter types
+     * @throws NoSuchMethodException  If the desired constructor with the specified parameter types cannot be found
+     * @throws IllegalAccessException If the desired constructor cannot be accessed due to certain circumstances
+     * @see #getConstructor(Class, Class...)
+     */
+    public static MethodHandle getConstructorHandle(Class<?> clazz, Class<?>... parameterTypes) throws NoSuchMethodException, IllegalAccessException {
+        return resolve(clazz, CONSTRUCTOR_NAME, parameterTypes).getHandle();
     }
 
     /**
@@ -64,7 +120,16 @@ public final class ReflectionUtils {
      * @throws NoSuchMethodException     If the desired constructor with the specified arguments cannot be found
      */
     public static Object instantiateObject(Class<?> clazz, Object... arguments) throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException {
-        return getConstructor(clazz, DataType.getPrimitive(arguments)).newInstance(arguments);
+        CachedMember member = resolveFor(clazz, CONSTRUCTOR_NAME, arguments);
+        MethodHandle handle = member.getHandle();
+        long start = ReflectionProfiler.start();
+        try {
+            return handle.invokeExact(arguments);
+        } catch (Throwable throwable) {
+            throw wrap(throwable);
+        } finally {
+            ReflectionProfiler.record(member.label, start);
+        }
     }
 
     /**
@@ -98,14 +163,24 @@ public final class ReflectionUtils {
      * @see DataType#compare(Class[], Class[])
      */
     public static Method getMethod(Class<?> clazz, String methodName, Class<?>... parameterTypes) throws NoSuchMethodException {
-        Class<?>[] primitiveTypes = DataType.getPrimitive(parameterTypes);
-        for (Method method : clazz.getMethods()) {
-            if (!method.getName().equals(methodName) || !DataType.compare(DataType.getPrimitive(method.getParameterTypes()), primitiveTypes)) {
-                continue;
-            }
-            return method;
-        }
-        throw new NoSuchMethodException("There is no such method in this class with the specified name and parameter types");
+        return (Method) resolve(clazz, methodName, parameterTypes).member;
+    }
+
+    /**
+     * Returns a cached method handle for a method of a class with the given parameter types
+     * <p>
+     * The handle has the type <code>(Object, Object[])Object</code> and takes the target object (ignored for static methods) followed by the method arguments as an array
+     *
+     * @param clazz          Target class
+     * @param methodName     Name of the desired method
+     * @param parameterTypes Parameter types of the desired method
+     * @return The method handle of the method of the target class with the specified name and parameter types
+     * @throws NoSuchMethodException  If the desired method of the target class with the specified name and parameter types cannot be found
+     * @throws IllegalAccessException If the desired method cannot be accessed due to certain circumstances
+     * @see #getMethod(Class, String, Class...)
+     */
+    public static MethodHandle getMethodHandle(Class<?> clazz, String methodName, Class<?>... parameterTypes) throws NoSuchMethodException, IllegalAccessException {
+        return resolve(clazz, methodName, parameterTypes).getHandle();
     }
 
     /**
@@ -139,7 +214,7 @@ public final class ReflectionUtils {
      * @see DataType#getPrimitive(Object[])
      */
     public static Object invokeMethod(Object instance, String methodName, Object... arguments) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException {
-        return getMethod(instance.getClass(), methodName, DataType.getPrimitive(arguments)).invoke(instance, arguments);
+        return invokeMethod(instance, instance.getClass(), methodName, arguments);
     }
 
     /**
@@ -158,7 +233,16 @@ public final class ReflectionUtils {
      * @see DataType#getPrimitive(Object[])
      */
     public static Object invokeMethod(Object instance, Class<?> clazz, String methodName, Object... arguments) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException {
-        return getMethod(clazz, methodName, DataType.getPrimitive(arguments)).invoke(instance, arguments);
+        CachedMember member = resolveFor(clazz, methodName, arguments);
+        MethodHandle handle = member.getHandle();
+        long start = ReflectionProfiler.start();
+        try {
+            return handle.invokeExact(instance, arguments);
+        } catch (Throwable throwable) {
+            throw wrap(throwable);
+        } finally {
+            ReflectionProfiler.record(member.label, start);
+        }
     }
 
     /**
@@ -214,6 +298,24 @@ public final class ReflectionUtils {
         return getField(packageType.getClass(className), declared, fieldName);
     }
 
+    /**
+     * Returns a method handle which sets the value of a field of the target class
+     * <p>
+     * The handle has the exact type <code>(clazz, fieldType)void</code>, or <code>(fieldType)void</code> for static fields, so callers can adapt it once with {@link MethodHandle#asType(MethodType)} and invoke it without boxing
+     *
+     * @param clazz     Target class
+     * @param declared  Whether the desired field is declared or not
+     * @param fieldName Name of the desired field
+     * @return The setter of the field of the target class with the specified name
+     * @throws NoSuchFieldException   If the desired field of the given class cannot be found
+     * @throws SecurityException      If the desired field cannot be made accessible
+     * @throws IllegalAccessException If the desired field cannot be accessed
+     * @see #getField(Class, boolean, String)
+     */
+    public static MethodHandle getFieldSetter(Class<?> clazz, boolean declared, String fieldName) throws NoSuchFieldException, SecurityException, IllegalAccessException {
+        return LOOKUP.unreflectSetter(getField(clazz, declared, fieldName));
+    }
+
     /**
      * Returns the value of a field of the given class of an object
      *
@@ -229,7 +331,12 @@ public final class ReflectionUtils {
      * @see #getField(Class, boolean, String)
      */
     public static Object getValue(Object instance, Class<?> clazz, boolean declared, String fieldName) throws IllegalArgumentException, IllegalAccessException, NoSuchFieldException, SecurityException {
-        return getField(clazz, declared, fieldName).get(instance);
+        long start = ReflectionProfiler.start();
+        try {
+            return getField(clazz, declared, fieldName).get(instance);
+        } finally {
+            ReflectionProfiler.record(clazz, fieldName, start);
+        }
     }
 
     /**
@@ -284,7 +391,12 @@ public final class ReflectionUtils {
      * @see #getField(Class, boolean, String)
      */
     public static void setValue(Object instance, Class<?> clazz, boolean declared, String fieldName, Object value) throws IllegalArgumentException, IllegalAccessException, NoSuchFieldException, SecurityException {
-        getField(clazz, declared, fieldName).set(instance, value);
+        long start = ReflectionProfiler.start();
+        try {
+            getField(clazz, declared, fieldName).set(instance, value);
+        } finally {
+            ReflectionProfiler.record(clazz, fieldName, start);
+        }
     }
 
     /**
@@ -324,6 +436,289 @@ public final class ReflectionUtils {
         setValue(instance, instance.getClass(), declared, fieldName, value);
     }
 
+    /**
+     * Resolves a constructor or method of a class and caches the result, including failed lookups
+     *
+     * @param clazz          Target class
+     * @param name           Name of the desired method or {@link #CONSTRUCTOR_NAME} for constructors
+     * @param parameterTypes Parameter types of the desired member
+     * @return The cached member
+     * @throws NoSuchMethodException If the desired member cannot be found
+     */
+    private static CachedMember resolve(Class<?> clazz, String name, Class<?>[] parameterTypes) throws NoSuchMethodException {
+        return resolve(LOOKUP_KEY.get().types(clazz, name, parameterTypes));
+    }
+
+    /**
+     * Resolves a constructor or method of a class which accepts the given arguments and caches the result, including failed lookups
+     *
+     * @param clazz     Target class
+     * @param name      Name of the desired method or {@link #CONSTRUCTOR_NAME} for constructors
+     * @param arguments Arguments the desired member will be invoked with
+     * @return The cached member
+     * @throws NoSuchMethodException If the desired member cannot be found
+     */
+    private static CachedMember resolveFor(Class<?> clazz, String name, Object[] arguments) throws NoSuchMethodException {
+        return resolve(LOOKUP_KEY.get().arguments(clazz, name, arguments));
+    }
+
+    private static CachedMember resolve(LookupKey lookup) throws NoSuchMethodException {
+        boolean constructor = CONSTRUCTOR_NAME.equals(lookup.name);
+        Object cached;
+        try {
+            cached = MEMBER_CACHE.get(lookup);
+            ReflectionProfiler.recordLookup("members", cached != null);
+            if (cached == null) {
+                MemberKey key = lookup.intern();
+                Member member = constructor ? findConstructor(key.clazz, key.signature) : findMethod(key.clazz, key.name, key.signature);
+                cached = member == null ? MISSING : new CachedMember(member);
+                MEMBER_CACHE.put(key, cached);
+            }
+        } finally {
+            // The key outlives the lookup in its thread, so it must not keep the class or the arguments reachable
+            lookup.clear();
+        }
+        if (cached == MISSING) {
+            if (constructor) {
+                throw new NoSuchMethodException("There is no such constructor in this class with the specified parameter types");
+            }
+            throw new NoSuchMethodException("There is no such method in this class with the specified name and parameter types");
+        }
+        return (CachedMember) cached;
+    }
+
+    private static Constructor<?> findConstructor(Class<?> clazz, Class<?>[] primitiveTypes) {
+        for (Constructor<?> constructor : clazz.getConstructors()) {
+            if (DataType.compare(DataType.getPrimitive(constructor.getParameterTypes()), primitiveTypes)) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    private static Method findMethod(Class<?> clazz, String methodName, Class<?>[] primitiveTypes) {
+        for (Method method : clazz.getMethods()) {
+            if (method.getName().equals(methodName) && DataType.compare(DataType.getPrimitive(method.getParameterTypes()), primitiveTypes)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wraps a throwable raised by a method handle the same way {@link Method#invoke(Object, Object...)} would
+     *
+     * @param throwable Throwable raised by the invoked member
+     * @return The invocation target exception to throw
+     */
+    private static InvocationTargetException wrap(Throwable throwable) {
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return new InvocationTargetException(throwable);
+    }
+
+    /**
+     * Represents the cache key of a member, made of its class, its name and its primitive signature
+     * <p>
+     * Keys of the same member are equal regardless of whether the signature is held as an array or read from arguments, so a reusable {@link LookupKey} can probe the cache for an interned {@link MemberKey}
+     */
+    private static abstract class AbstractKey {
+        Class<?> clazz;
+        String name;
+        int hash;
+
+        /**
+         * Returns the number of parameters of the signature
+         *
+         * @return The parameter count
+         */
+        abstract int size();
+
+        /**
+         * Returns the primitive class of a parameter of the signature
+         *
+         * @param index Index of the parameter
+         * @return The primitive class
+         */
+        abstract Class<?> typeAt(int index);
+
+        final int computeHash() {
+            int result = 31 * System.identityHashCode(clazz) + name.hashCode();
+            for (int index = 0, size = size(); index < size; index++) {
+                result = 31 * result + System.identityHashCode(typeAt(index));
+            }
+            return result;
+        }
+
+        @Override
+        public final boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof AbstractKey)) {
+                return false;
+            }
+            AbstractKey other = (AbstractKey) object;
+            int size = size();
+            if (hash != other.hash || clazz != other.clazz || size != other.size() || !name.equals(other.name)) {
+                return false;
+            }
+            for (int index = 0; index < size; index++) {
+                if (typeAt(index) != other.typeAt(index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public final int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Represents the immutable key of a member which is stored in the member cache
+     */
+    private static final class MemberKey extends AbstractKey {
+        private final Class<?>[] signature;
+
+        MemberKey(Class<?> clazz, String name, Class<?>[] signature, int hash) {
+            this.clazz = clazz;
+            this.name = name;
+            this.signature = signature;
+            this.hash = hash;
+        }
+
+        @Override
+        int size() {
+            return signature.length;
+        }
+
+        @Override
+        Class<?> typeAt(int index) {
+            return signature[index];
+        }
+    }
+
+    /**
+     * Represents a mutable per-thread key which probes the member cache without allocating
+     */
+    private static final class LookupKey extends AbstractKey {
+        private Class<?>[] types;
+        private Object[] arguments;
+
+        LookupKey types(Class<?> clazz, String name, Class<?>[] types) {
+            this.clazz = clazz;
+            this.name = name;
+            this.types = types;
+            this.arguments = null;
+            this.hash = computeHash();
+            return this;
+        }
+
+        LookupKey arguments(Class<?> clazz, String name, Object[] arguments) {
+            this.clazz = clazz;
+            this.name = name;
+            this.types = null;
+            this.arguments = arguments;
+            this.hash = computeHash();
+            return this;
+        }
+
+        @Override
+        int size() {
+            if (types != null) {
+                return types.length;
+            }
+            return arguments == null ? 0 : arguments.length;
+        }
+
+        @Override
+        Class<?> typeAt(int index) {
+            return DataType.getPrimitive(types != null ? types[index] : arguments[index].getClass());
+        }
+
+        /**
+         * Copies this key into an immutable key
+         *
+         * @return The immutable key
+         */
+        MemberKey intern() {
+            Class<?>[] signature = new Class<?>[size()];
+            for (int index = 0; index < signature.length; index++) {
+                signature[index] = typeAt(index);
+            }
+            return new MemberKey(clazz, name, signature, hash);
+        }
+
+        /**
+         * Releases the probed class, types and arguments
+         */
+        void clear() {
+            clazz = null;
+            name = null;
+            types = null;
+            arguments = null;
+        }
+    }
+
+    /**
+     * Represents a resolved member together with its lazily created method handle
+     */
+    private static final class CachedMember {
+        private final Member member;
+        private final String label;
+        private volatile MethodHandle handle;
+
+        CachedMember(Member member) {
+            this.member = member;
+            this.label = member.getDeclaringClass().getSimpleName() + "#" + (member instanceof Constructor ? CONSTRUCTOR_NAME : member.getName());
+        }
+
+        /**
+         * Returns the method handle of this member, adapted to take its arguments as an object array
+         *
+         * @return The method handle
+         * @throws IllegalAccessException If the member cannot be accessed
+         */
+        MethodHandle getHandle() throws IllegalAccessException {
+            MethodHandle result = handle;
+            if (result != null) {
+                return result;
+            }
+            if (member instanceof Constructor) {
+                Constructor<?> constructor = (Constructor<?>) member;
+                makeAccessible(constructor);
+                // Varargs members take their array as the last argument, like they do through reflection
+                result = LOOKUP.unreflectConstructor(constructor).asFixedArity();
+                result = result.asType(MethodType.genericMethodType(result.type().parameterCount()))
+                        .asSpreader(Object[].class, result.type().parameterCount());
+            } else {
+                Method method = (Method) member;
+                makeAccessible(method);
+                result = LOOKUP.unreflect(method).asFixedArity();
+                if (Modifier.isStatic(method.getModifiers())) {
+                    result = MethodHandles.dropArguments(result, 0, Object.class);
+                }
+                int arguments = result.type().parameterCount() - 1;
+                result = result.asType(MethodType.genericMethodType(arguments + 1))
+                        .asSpreader(Object[].class, arguments);
+            }
+            handle = result;
+            return result;
+        }
+
+        private static void makeAccessible(AccessibleObject object) {
+            try {
+                object.setAccessible(true);
+            } catch (RuntimeException ignored) {
+                // The handle lookup reports the access problem if there is one
+            }
+        }
+    }
+
     /**
      * Represents an enumeration of dynamic packages of NMS and CraftBukkit
      */
@@ -350,6 +745,7 @@ public final class ReflectionUtils {
         CRAFTBUKKIT_UTIL(CRAFTBUKKIT, "util");
 
         private final String path;
+        private final Map<String, Object> classes = new ConcurrentHashMap<String, Object>();
 
         /**
          * Construct a new package type
@@ -381,13 +777,29 @@ public final class ReflectionUtils {
 
         /**
          * Returns the class with the given name
+         * <p>
+         * <b>Note:</b> Lookups are cached per package, including classes that could not be found
          *
          * @param className Name of the desired class
          * @return The class with the specified name
          * @throws ClassNotFoundException If the desired class with the specified name and package cannot be found
+         * @see ReflectionUtils#forName(String)
          */
         public Class<?> getClass(String className) throws ClassNotFoundException {
-            return Class.forName(this + "." + className);
+            Object cached = classes.get(className);
+            ReflectionProfiler.recordLookup("packages", cached != null);
+            if (cached == null) {
+                try {
+                    cached = forName(path + "." + className);
+                } catch (ClassNotFoundException exception) {
+                    cached = MISSING;
+                }
+                classes.put(className, cached);
+            }
+            if (cached == MISSING) {
+                throw new ClassNotFoundException(path + "." + className);
+            }
+            return (Class<?>) cached;
         }
 
         // Override for convenience
@@ -402,7 +814,12 @@ public final class ReflectionUtils {
          * @return The server version
          */
         public static String getServerVersion() {
-            return Bukkit.getServer().getClass().getPackage().getName().substring(23);
+            String version = serverVersion;
+            if (version == null) {
+                version = Bukkit.getServer().getClass().getPackage().getName().substring(23);
+                serverVersion = version;
+            }
+            return version;
         }
     }
 
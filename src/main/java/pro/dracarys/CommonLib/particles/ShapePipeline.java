@@ -0,0 +1,263 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Generates many or very large shapes in parallel on a fork-join pool and hands the finished {@link PointBuffer}s back to the main thread
+ * <p>
+ * The shapes of one call are split across the workers of the pool, large buffers are additionally split into chunks while they are transformed.
+ * Point buffers are immutable, so the results can be sent from the main thread without any further copying.
+ * Every call returns a future which is completed on the main thread, with the shapes or with the failure of a shape
+ * <p>
+ * <b>Note:</b> The pool leaves one core to the main thread and is only started by the first call
+ */
+public final class ShapePipeline {
+    private static final int CHUNK_SIZE = 4096;
+    // Smaller buffers are translated on the calling thread, splitting them costs more than it saves
+    static final int PARALLEL_THRESHOLD = CHUNK_SIZE * 2;
+    private static final Object LOCK = new Object();
+    private static ForkJoinPool pool;
+
+    // Prevent accidental construction
+    private ShapePipeline() {
+    }
+
+    /**
+     * Generates shapes in parallel and passes them to the callback on the main thread
+     * <p>
+     * If a shape fails, the callback is not called and the returned future is completed exceptionally on the main thread instead.
+     * The future is cancelled if the plugin is disabled before the shapes are done
+     *
+     * @param plugin   Plugin which owns the callback task
+     * @param shapes   Shapes to generate, they are called on the workers of the pool and must not access the world
+     * @param callback Callback which receives the generated shapes in the order of the list
+     * @return The future of the generated shapes, completed after the callback ran
+     */
+    public static CompletableFuture<List<PointBuffer>> generate(final Plugin plugin, List<? extends Supplier<PointBuffer>> shapes, final Consumer<List<PointBuffer>> callback) {
+        final Supplier<?>[] jobs = shapes.toArray(new Supplier<?>[0]);
+        final CompletableFuture<List<PointBuffer>> future = new CompletableFuture<>();
+        getPool().execute(() -> {
+            PointBuffer[] results = new PointBuffer[jobs.length];
+            Throwable failure = null;
+            try {
+                new GenerateTask(jobs, results, 0, jobs.length).invoke();
+            } catch (Throwable throwable) {
+                failure = throwable;
+            }
+            if (!plugin.isEnabled()) {
+                future.cancel(false);
+                return;
+            }
+            final Throwable cause = failure;
+            final List<PointBuffer> generated = Collections.unmodifiableList(Arrays.asList(results));
+            plugin.getServer().getScheduler().runTask(plugin, () -> complete(future, generated, cause, callback));
+        });
+        return future;
+    }
+
+    /**
+     * Generates a shape in parallel with other work and passes it to the callback on the main thread
+     *
+     * @param plugin   Plugin which owns the callback task
+     * @param shape    Shape to generate, it is called on a worker of the pool and must not access the world
+     * @param callback Callback which receives the generated shape
+     * @return The future of the generated shape, completed after the callback ran
+     * @see #generate(Plugin, List, Consumer)
+     */
+    public static CompletableFuture<PointBuffer> generate(Plugin plugin, Supplier<PointBuffer> shape, final Consumer<PointBuffer> callback) {
+        return generate(plugin, Collections.singletonList(shape), generated -> callback.accept(generated.get(0))).thenApply(generated -> generated.get(0));
+    }
+
+    /**
+     * Passes the shapes to the callback and completes the future, runs on the main thread
+     */
+    private static void complete(CompletableFuture<List<PointBuffer>> future, List<PointBuffer> generated, Throwable failure, Consumer<List<PointBuffer>> callback) {
+        if (failure != null) {
+            failure.printStackTrace();
+            future.completeExceptionally(failure);
+            return;
+        }
+        try {
+            callback.accept(generated);
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+            throw throwable;
+        }
+        future.complete(generated);
+    }
+
+    /**
+     * Returns a shape of the edges of a cuboid between two corners, to be passed to {@link #generate(Plugin, List, Consumer)}
+     *
+     * @param minX Lower x-coordinate
+     * @param minY Lower y-coordinate
+     * @param minZ Lower z-coordinate
+     * @param maxX Upper x-coordinate
+     * @param maxY Upper y-coordinate
+     * @param maxZ Upper z-coordinate
+     * @param step Distance between two points of an edge
+     * @return The shape
+     * @throws IllegalArgumentException If an upper coordinate is lower than the lower one or the step is not positive
+     * @see Shapes#cubeEdges(double, double, double, double)
+     */
+    public static Supplier<PointBuffer> cubeEdges(final double minX, final double minY, final double minZ, final double maxX, final double maxY, final double maxZ, final double step) throws IllegalArgumentException {
+        if (maxX < minX || maxY < minY || maxZ < minZ) {
+            throw new IllegalArgumentException("The upper corner is lower than the lower corner");
+        }
+        if (step <= 0) {
+            throw new IllegalArgumentException("The step is not positive");
+        }
+        return () -> translate(Shapes.cubeEdges(maxX - minX, maxY - minY, maxZ - minZ, step), minX, minY, minZ);
+    }
+
+    /**
+     * Returns a new buffer with every point moved by the given offset, large buffers are split into chunks which are moved in parallel
+     * <p>
+     * <b>Note:</b> This is meant to be called inside a shape, calling it on another thread blocks until all chunks are done
+     *
+     * @param buffer Buffer to translate
+     * @param x      Offset on the x-axis
+     * @param y      Offset on the y-axis
+     * @param z      Offset on the z-axis
+     * @return The translated buffer
+     */
+    public static PointBuffer translate(PointBuffer buffer, double x, double y, double z) {
+        if (buffer.size() < PARALLEL_THRESHOLD) {
+            return buffer.translate(x, y, z);
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            double[] translated = new double[buffer.size() * 3];
+            new TranslateTask(buffer.getPoints(), translated, 0, buffer.size(), x, y, z).invoke();
+            return new PointBuffer(translated, buffer.size());
+        }
+        return translate(getPool(), buffer, x, y, z);
+    }
+
+    /**
+     * Returns a new buffer with every point moved by the given offset, split into chunks which are moved in parallel on the given pool
+     *
+     * @param pool   Pool which moves the chunks
+     * @param buffer Buffer to translate
+     * @param x      Offset on the x-axis
+     * @param y      Offset on the y-axis
+     * @param z      Offset on the z-axis
+     * @return The translated buffer
+     */
+    static PointBuffer translate(ForkJoinPool pool, PointBuffer buffer, double x, double y, double z) {
+        double[] translated = new double[buffer.size() * 3];
+        pool.invoke(new TranslateTask(buffer.getPoints(), translated, 0, buffer.size(), x, y, z));
+        return new PointBuffer(translated, buffer.size());
+    }
+
+    /**
+     * Stops the pool after the running shapes are done, it is restarted by the next call
+     */
+    public static void shutdown() {
+        ForkJoinPool stopped;
+        synchronized (LOCK) {
+            stopped = pool;
+            pool = null;
+        }
+        if (stopped == null) {
+            return;
+        }
+        stopped.shutdown();
+        try {
+            stopped.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ForkJoinPool getPool() {
+        synchronized (LOCK) {
+            if (pool == null) {
+                int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+                pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    thread.setName("CommonLib Shape Worker #" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * Generates a range of shapes by splitting it in halves until a single shape is left
+     */
+    private static final class GenerateTask extends RecursiveAction {
+        private final Supplier<?>[] jobs;
+        private final PointBuffer[] results;
+        private final int from;
+        private final int to;
+
+        GenerateTask(Supplier<?>[] jobs, PointBuffer[] results, int from, int to) {
+            this.jobs = jobs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    results[from] = (PointBuffer) jobs[from].get();
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GenerateTask(jobs, results, from, middle), new GenerateTask(jobs, results, middle, to));
+        }
+    }
+
+    /**
+     * Moves a range of points by splitting it in halves until a chunk is small enough
+     */
+    private static final class TranslateTask extends RecursiveAction {
+        private final double[] source;
+        private final double[] target;
+        private final int from;
+        private final int to;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        TranslateTask(double[] source, double[] target, int from, int to, double x, double y, double z) {
+            this.source = source;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int offset = from * 3, end = to * 3; offset < end; offset += 3) {
+                    target[offset] = source[offset] + x;
+                    target[offset + 1] = source[offset + 1] + y;
+                    target[offset + 2] = source[offset + 2] + z;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TranslateTask(source, target, from, middle, x, y, z), new TranslateTask(source, target, middle, to, x, y, z));
+        }
+    }
+}
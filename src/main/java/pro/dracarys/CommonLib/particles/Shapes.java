@@ -0,0 +1,306 @@
+package pro.dracarys.CommonLib.particles;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates the points of common shapes directly into {@link PointBuffer}s
+ * <p>
+ * Shapes are generated relative to their origin and cached by their parameters, so the same shape at another location only costs a translation
+ */
+public final class Shapes {
+    private static final int MAX_CACHED = 256;
+    private static final Map<ShapeKey, PointBuffer> CACHE = new ConcurrentHashMap<>();
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    // Prevent accidental construction
+    private Shapes() {
+    }
+
+    /**
+     * Returns the edges of a cuboid spanning from the origin to the given size
+     *
+     * @param sizeX Size on the x-axis
+     * @param sizeY Size on the y-axis
+     * @param sizeZ Size on the z-axis
+     * @param step  Distance between two points of an edge
+     * @return The points of the edges
+     * @throws IllegalArgumentException If a size is negative or the step is not positive
+     */
+    public static PointBuffer cubeEdges(double sizeX, double sizeY, double sizeZ, double step) throws IllegalArgumentException {
+        if (sizeX < 0 || sizeY < 0 || sizeZ < 0) {
+            throw new IllegalArgumentException("The size is negative");
+        }
+        checkStep(step);
+        ShapeKey key = new ShapeKey(Type.CUBE_EDGES, sizeX, sizeY, sizeZ, step);
+        PointBuffer buffer = CACHE.get(key);
+        if (buffer == null) {
+            buffer = generateCubeEdges(sizeX, sizeY, sizeZ, step);
+            cache(key, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns points evenly spread over the surface of a sphere around the origin
+     *
+     * @param radius Radius of the sphere
+     * @param points Amount of points
+     * @return The points of the sphere
+     * @throws IllegalArgumentException If the radius is negative or the amount is lower than 1
+     */
+    public static PointBuffer sphere(double radius, int points) throws IllegalArgumentException {
+        checkRadius(radius);
+        checkPoints(points);
+        ShapeKey key = new ShapeKey(Type.SPHERE, radius, points);
+        PointBuffer buffer = CACHE.get(key);
+        if (buffer == null) {
+            double[] result = new double[points * 3];
+            for (int index = 0, offset = 0; index < points; index++, offset += 3) {
+                // Fibonacci lattice, the height is spread evenly and the angle advances by the golden angle
+                double y = points == 1 ? 0 : 1 - (index / (double) (points - 1)) * 2;
+                double ring = Math.sqrt(1 - y * y);
+                double angle = GOLDEN_ANGLE * index;
+                result[offset] = Math.cos(angle) * ring * radius;
+                result[offset + 1] = y * radius;
+                result[offset + 2] = Math.sin(angle) * ring * radius;
+            }
+            buffer = new PointBuffer(result, points);
+            cache(key, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns points evenly spread over a horizontal circle around the origin
+     *
+     * @param radius Radius of the circle
+     * @param points Amount of points
+     * @return The points of the circle
+     * @throws IllegalArgumentException If the radius is negative or the amount is lower than 1
+     */
+    public static PointBuffer circle(double radius, int points) throws IllegalArgumentException {
+        checkRadius(radius);
+        checkPoints(points);
+        ShapeKey key = new ShapeKey(Type.CIRCLE, radius, points);
+        PointBuffer buffer = CACHE.get(key);
+        if (buffer == null) {
+            double[] result = new double[points * 3];
+            double increment = Math.PI * 2 / points;
+            for (int index = 0, offset = 0; index < points; index++, offset += 3) {
+                result[offset] = Math.cos(increment * index) * radius;
+                result[offset + 2] = Math.sin(increment * index) * radius;
+            }
+            buffer = new PointBuffer(result, points);
+            cache(key, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns points along a vertical helix rising from the origin
+     *
+     * @param radius Radius of the helix
+     * @param height Height of the helix
+     * @param turns  Amount of full turns
+     * @param points Amount of points
+     * @return The points of the helix
+     * @throws IllegalArgumentException If the radius is negative or the amount is lower than 1
+     */
+    public static PointBuffer helix(double radius, double height, double turns, int points) throws IllegalArgumentException {
+        checkRadius(radius);
+        checkPoints(points);
+        ShapeKey key = new ShapeKey(Type.HELIX, radius, height, turns, points);
+        PointBuffer buffer = CACHE.get(key);
+        if (buffer == null) {
+            double[] result = new double[points * 3];
+            double divisor = points == 1 ? 1 : points - 1;
+            for (int index = 0, offset = 0; index < points; index++, offset += 3) {
+                double progress = index / divisor;
+                double angle = Math.PI * 2 * turns * progress;
+                result[offset] = Math.cos(angle) * radius;
+                result[offset + 1] = height * progress;
+                result[offset + 2] = Math.sin(angle) * radius;
+            }
+            buffer = new PointBuffer(result, points);
+            cache(key, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns points along a line from the origin to the given end
+     *
+     * @param x    End x-coordinate relative to the origin
+     * @param y    End y-coordinate relative to the origin
+     * @param z    End z-coordinate relative to the origin
+     * @param step Distance between two points
+     * @return The points of the line, including both ends
+     * @throws IllegalArgumentException If the step is not positive
+     */
+    public static PointBuffer line(double x, double y, double z, double step) throws IllegalArgumentException {
+        checkStep(step);
+        ShapeKey key = new ShapeKey(Type.LINE, x, y, z, step);
+        PointBuffer buffer = CACHE.get(key);
+        if (buffer == null) {
+            double length = Math.sqrt(x * x + y * y + z * z);
+            int segments = (int) Math.ceil(length / step);
+            int points = segments + 1;
+            double[] result = new double[points * 3];
+            for (int index = 0, offset = 0; index < points; index++, offset += 3) {
+                double progress = segments == 0 ? 0 : index / (double) segments;
+                result[offset] = x * progress;
+                result[offset + 1] = y * progress;
+                result[offset + 2] = z * progress;
+            }
+            buffer = new PointBuffer(result, points);
+            cache(key, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Removes all cached shapes
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Generates the edges of a cuboid without caching them, for shapes whose size changes too often to be reused
+     *
+     * @see #cubeEdges(double, double, double, double)
+     */
+    static PointBuffer generateCubeEdges(double sizeX, double sizeY, double sizeZ, double step) {
+        double[] xs = axis(sizeX, step);
+        double[] ys = axis(sizeY, step);
+        double[] zs = axis(sizeZ, step);
+        double[] endsX = ends(sizeX);
+        double[] endsY = ends(sizeY);
+        double[] endsZ = ends(sizeZ);
+        // Edges along the x-axis include the corners, the other edges skip their ends to not repeat them
+        int innerY = Math.max(ys.length - 2, 0);
+        int innerZ = Math.max(zs.length - 2, 0);
+        int capacity = xs.length * endsY.length * endsZ.length + innerY * endsX.length * endsZ.length + innerZ * endsX.length * endsY.length;
+        double[] result = new double[capacity * 3];
+        int offset = 0;
+        for (double y : endsY) {
+            for (double z : endsZ) {
+                for (double x : xs) {
+                    offset = put(result, offset, x, y, z);
+                }
+            }
+        }
+        for (double x : endsX) {
+            for (double z : endsZ) {
+                for (int index = 1; index <= innerY; index++) {
+                    offset = put(result, offset, x, ys[index], z);
+                }
+            }
+        }
+        for (double x : endsX) {
+            for (double y : endsY) {
+                for (int index = 1; index <= innerZ; index++) {
+                    offset = put(result, offset, x, y, zs[index]);
+                }
+            }
+        }
+        return new PointBuffer(result, capacity);
+    }
+
+    /**
+     * Returns the coordinates of the points along an edge, the end is always included even if the size is not a multiple of the step
+     */
+    private static double[] axis(double size, double step) {
+        if (size == 0) {
+            return new double[]{0};
+        }
+        int inner = (int) Math.ceil(size / step - 1E-9) - 1;
+        double[] values = new double[inner + 2];
+        for (int index = 0; index <= inner; index++) {
+            values[index] = index * step;
+        }
+        values[inner + 1] = size;
+        return values;
+    }
+
+    private static double[] ends(double size) {
+        return size == 0 ? new double[]{0} : new double[]{0, size};
+    }
+
+    private static int put(double[] result, int offset, double x, double y, double z) {
+        result[offset] = x;
+        result[offset + 1] = y;
+        result[offset + 2] = z;
+        return offset + 3;
+    }
+
+    private static void cache(ShapeKey key, PointBuffer buffer) {
+        if (CACHE.size() >= MAX_CACHED) {
+            CACHE.clear();
+        }
+        CACHE.put(key, buffer);
+    }
+
+    private static void checkStep(double step) throws IllegalArgumentException {
+        if (step <= 0) {
+            throw new IllegalArgumentException("The step is not positive");
+        }
+    }
+
+    private static void checkRadius(double radius) throws IllegalArgumentException {
+        if (radius < 0) {
+            throw new IllegalArgumentException("The radius is negative");
+        }
+    }
+
+    private static void checkPoints(int points) throws IllegalArgumentException {
+        if (points < 1) {
+            throw new IllegalArgumentException("The amount of points is lower than 1");
+        }
+    }
+
+    /**
+     * Represents the type of a cached shape
+     */
+    private enum Type {
+        CUBE_EDGES,
+        SPHERE,
+        CIRCLE,
+        HELIX,
+        LINE
+    }
+
+    /**
+     * Represents the type and parameters of a cached shape
+     */
+    private static final class ShapeKey {
+        private final Type type;
+        private final double[] parameters;
+        private final int hash;
+
+        ShapeKey(Type type, double... parameters) {
+            this.type = type;
+            this.parameters = parameters;
+            this.hash = 31 * type.hashCode() + Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof ShapeKey)) {
+                return false;
+            }
+            ShapeKey other = (ShapeKey) object;
+            return type == other.type && Arrays.equals(parameters, other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
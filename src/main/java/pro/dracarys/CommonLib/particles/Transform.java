@@ -0,0 +1,176 @@
+package pro.dracarys.CommonLib.particles;
+
+/**
+ * Represents an immutable affine transformation (rotation, scale and translation) of points
+ * <p>
+ * Transforms are composed once per frame and then applied to whole packed coordinate arrays in a single loop, so animating a shape does not create a <code>Location</code> or <code>Vector</code> for every point.
+ * A transform stores the upper three rows of a 4x4 matrix, the last row is always (0, 0, 0, 1)
+ */
+public final class Transform {
+    public static final Transform IDENTITY = new Transform(1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0);
+    private final double m00, m01, m02, m03;
+    private final double m10, m11, m12, m13;
+    private final double m20, m21, m22, m23;
+
+    private Transform(double m00, double m01, double m02, double m03, double m10, double m11, double m12, double m13, double m20, double m21, double m22, double m23) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m03 = m03;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m13 = m13;
+        this.m20 = m20;
+        this.m21 = m21;
+        this.m22 = m22;
+        this.m23 = m23;
+    }
+
+    /**
+     * Returns a transform from the upper three rows of a matrix, every row holds the factors of x, y and z and the translation
+     *
+     * @param matrix Matrix in row-major order with 12 elements
+     * @return The transform
+     * @throws IllegalArgumentException If the matrix does not have 12 elements
+     */
+    public static Transform of(double... matrix) throws IllegalArgumentException {
+        if (matrix.length != 12) {
+            throw new IllegalArgumentException("The matrix does not have 12 elements");
+        }
+        return new Transform(matrix[0], matrix[1], matrix[2], matrix[3], matrix[4], matrix[5], matrix[6], matrix[7], matrix[8], matrix[9], matrix[10], matrix[11]);
+    }
+
+    /**
+     * Returns a translation
+     *
+     * @param x Offset on the x-axis
+     * @param y Offset on the y-axis
+     * @param z Offset on the z-axis
+     * @return The translation
+     */
+    public static Transform translation(double x, double y, double z) {
+        return new Transform(1, 0, 0, x, 0, 1, 0, y, 0, 0, 1, z);
+    }
+
+    /**
+     * Returns a scale around the origin
+     *
+     * @param x Factor on the x-axis
+     * @param y Factor on the y-axis
+     * @param z Factor on the z-axis
+     * @return The scale
+     */
+    public static Transform scaling(double x, double y, double z) {
+        return new Transform(x, 0, 0, 0, 0, y, 0, 0, 0, 0, z, 0);
+    }
+
+    /**
+     * Returns a rotation around the origin
+     *
+     * @param rotation Rotation to apply
+     * @return The rotation
+     */
+    public static Transform rotation(Quaternion rotation) {
+        double w = rotation.getW(), x = rotation.getX(), y = rotation.getY(), z = rotation.getZ();
+        return new Transform(
+                1 - 2 * (y * y + z * z), 2 * (x * y - z * w), 2 * (x * z + y * w), 0,
+                2 * (x * y + z * w), 1 - 2 * (x * x + z * z), 2 * (y * z - x * w), 0,
+                2 * (x * z - y * w), 2 * (y * z + x * w), 1 - 2 * (x * x + y * y), 0);
+    }
+
+    /**
+     * Returns a rotation around an axis through the origin
+     *
+     * @param axisX X-component of the axis
+     * @param axisY Y-component of the axis
+     * @param axisZ Z-component of the axis
+     * @param angle Angle of the rotation in radians
+     * @return The rotation
+     * @throws IllegalArgumentException If the axis has no length
+     */
+    public static Transform rotation(double axisX, double axisY, double axisZ, double angle) throws IllegalArgumentException {
+        return rotation(Quaternion.fromAxisAngle(axisX, axisY, axisZ, angle));
+    }
+
+    /**
+     * Returns the transform which applies this transform first and then the other one
+     *
+     * @param next Transform which is applied afterwards
+     * @return The combined transform
+     */
+    public Transform then(Transform next) {
+        return new Transform(
+                next.m00 * m00 + next.m01 * m10 + next.m02 * m20, next.m00 * m01 + next.m01 * m11 + next.m02 * m21, next.m00 * m02 + next.m01 * m12 + next.m02 * m22, next.m00 * m03 + next.m01 * m13 + next.m02 * m23 + next.m03,
+                next.m10 * m00 + next.m11 * m10 + next.m12 * m20, next.m10 * m01 + next.m11 * m11 + next.m12 * m21, next.m10 * m02 + next.m11 * m12 + next.m12 * m22, next.m10 * m03 + next.m11 * m13 + next.m12 * m23 + next.m13,
+                next.m20 * m00 + next.m21 * m10 + next.m22 * m20, next.m20 * m01 + next.m21 * m11 + next.m22 * m21, next.m20 * m02 + next.m21 * m12 + next.m22 * m22, next.m20 * m03 + next.m21 * m13 + next.m22 * m23 + next.m23);
+    }
+
+    /**
+     * Returns this transform followed by a translation
+     *
+     * @param x Offset on the x-axis
+     * @param y Offset on the y-axis
+     * @param z Offset on the z-axis
+     * @return The combined transform
+     */
+    public Transform translate(double x, double y, double z) {
+        return new Transform(m00, m01, m02, m03 + x, m10, m11, m12, m13 + y, m20, m21, m22, m23 + z);
+    }
+
+    /**
+     * Returns this transform followed by a uniform scale around the origin
+     *
+     * @param factor Factor on all axes
+     * @return The combined transform
+     */
+    public Transform scale(double factor) {
+        return new Transform(m00 * factor, m01 * factor, m02 * factor, m03 * factor, m10 * factor, m11 * factor, m12 * factor, m13 * factor, m20 * factor, m21 * factor, m22 * factor, m23 * factor);
+    }
+
+    /**
+     * Returns this transform followed by a rotation around the origin
+     *
+     * @param rotation Rotation to apply
+     * @return The combined transform
+     */
+    public Transform rotate(Quaternion rotation) {
+        return then(rotation(rotation));
+    }
+
+    /**
+     * Transforms packed coordinates (x, y and z of every point after each other) from one array into another, the coordinates can be transformed in place by passing the same array and offset
+     *
+     * @param source       Array holding the coordinates
+     * @param sourceOffset Index of the x-coordinate of the first point in the source
+     * @param target       Array the transformed coordinates are written to
+     * @param targetOffset Index of the x-coordinate of the first point in the target
+     * @param count        Amount of points
+     */
+    public void apply(double[] source, int sourceOffset, double[] target, int targetOffset, int count) {
+        // The matrix is kept in locals so the loop only reads and writes the arrays
+        final double a00 = m00, a01 = m01, a02 = m02, a03 = m03;
+        final double a10 = m10, a11 = m11, a12 = m12, a13 = m13;
+        final double a20 = m20, a21 = m21, a22 = m22, a23 = m23;
+        for (int index = 0; index < count; index++) {
+            int from = sourceOffset + index * 3;
+            int to = targetOffset + index * 3;
+            double x = source[from], y = source[from + 1], z = source[from + 2];
+            target[to] = a00 * x + a01 * y + a02 * z + a03;
+            target[to + 1] = a10 * x + a11 * y + a12 * z + a13;
+            target[to + 2] = a20 * x + a21 * y + a22 * z + a23;
+        }
+    }
+
+    /**
+     * Returns a new buffer with every point transformed
+     *
+     * @param buffer Buffer to transform
+     * @return The transformed buffer
+     */
+    public PointBuffer apply(PointBuffer buffer) {
+        double[] transformed = new double[buffer.size() * 3];
+        apply(buffer.getPoints(), 0, transformed, 0, buffer.size());
+        return new PointBuffer(transformed, buffer.size());
+    }
+}
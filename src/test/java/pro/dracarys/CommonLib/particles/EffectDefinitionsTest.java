@@ -0,0 +1,116 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.Test;
+import org.simpleyaml.configuration.file.YamlConfiguration;
+import pro.dracarys.CommonLib.particles.EffectDefinitions.EffectDefinitionException;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EffectDefinitionsTest {
+    private static final double DELTA = 1e-9;
+    private static final String SAMPLE = String.join("\n",
+            "effects:",
+            "  halo:",
+            "    particle: REDSTONE",
+            "    colors: ['255,0,0', '#FFAA00']",
+            "    period: 2",
+            "    range: 24",
+            "    shape:",
+            "      type: circle",
+            "      radius: 1",
+            "      points: 4",
+            "    position: [0, 2, 0]",
+            "  spark:",
+            "    particle: EXPLOSION_NORMAL",
+            "    amount: 3",
+            "    lifetime: 40",
+            "    shape:",
+            "      type: line",
+            "      end: [0, 0, 2]",
+            "      step: 1",
+            "    rotation:",
+            "      axis: [0, 1, 0]",
+            "      frames: 4");
+    private final World world = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class}, (proxy, method, args) -> null);
+
+    @Test
+    public void compilesEffectsInOrder() throws Exception {
+        Map<String, EffectProgram> programs = EffectDefinitions.compile(yaml(SAMPLE));
+        assertEquals(Arrays.asList("halo", "spark"), new ArrayList<>(programs.keySet()));
+
+        EffectProgram halo = programs.get("halo");
+        assertEquals("halo", halo.getName());
+        assertEquals(2, halo.getPeriod());
+        assertEquals(-1, halo.getLifetime());
+        assertEquals(24, halo.getRange(), 0);
+        EffectProgram spark = programs.get("spark");
+        assertEquals(1, spark.getPeriod());
+        assertEquals(40, spark.getLifetime());
+        assertEquals(32, spark.getRange(), 0);
+    }
+
+    @Test
+    public void haloCyclesColorsAroundPosition() throws Exception {
+        EffectProgram halo = EffectDefinitions.compile(yaml(SAMPLE)).get("halo");
+        ParticleBatch first = render(halo, 0);
+        // The circle of radius 1 is lifted by the position and centered on the origin
+        assertPoints(new double[]{11, 66, 10, 10, 66, 11, 9, 66, 10, 10, 66, 9}, first);
+        ParticleBatch second = render(halo, 1);
+        assertTrue(first.getTemplate(0) != second.getTemplate(0));
+        assertSame(first.getTemplate(0), render(halo, 2).getTemplate(0));
+    }
+
+    @Test
+    public void sparkRotatesFrameByFrame() throws Exception {
+        EffectProgram spark = EffectDefinitions.compile(yaml(SAMPLE)).get("spark");
+        assertPoints(new double[]{10, 64, 10, 10, 64, 11, 10, 64, 12}, render(spark, 0));
+        // A quarter turn around the y-axis moves the line from +z to +x
+        assertPoints(new double[]{10, 64, 10, 11, 64, 10, 12, 64, 10}, render(spark, 1));
+        assertPoints(new double[]{10, 64, 10, 10, 64, 11, 10, 64, 12}, render(spark, 4));
+        assertEquals(3, render(spark, 0).getTemplate(0).newPacket(false).getAmount());
+    }
+
+    @Test
+    public void invalidEffectNamesItInTheMessage() throws Exception {
+        assertInvalid("effects:\n  broken:\n    shape:\n      type: circle", "Invalid particle effect 'broken': The particle is missing");
+        assertInvalid("effects:\n  twisted:\n    particle: EXPLOSION_NORMAL\n    shape:\n      type: star", "Invalid particle effect 'twisted': Unknown shape star");
+        assertInvalid("effects:\n  jittery:\n    particle: EXPLOSION_NORMAL\n    rotation:\n      frames: 0", "Invalid particle effect 'jittery': The rotation frames are not between 1 and 360");
+    }
+
+    private void assertInvalid(String definition, String message) throws Exception {
+        try {
+            EffectDefinitions.compile(yaml(definition));
+            fail("The definition was compiled");
+        } catch (EffectDefinitionException exception) {
+            assertEquals(message, exception.getMessage());
+        }
+    }
+
+    private ParticleBatch render(EffectProgram program, long frame) {
+        ParticleBatch batch = new ParticleBatch(world);
+        program.render(batch, new Location(world, 10, 64, 10), frame);
+        return batch;
+    }
+
+    private static void assertPoints(double[] expected, ParticleBatch batch) {
+        assertEquals(expected.length / 3, batch.size());
+        assertArrayEquals(expected, batch.getPoints().toArray(), DELTA);
+    }
+
+    private static YamlConfiguration yaml(String contents) throws Exception {
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.loadFromString(contents);
+        return configuration;
+    }
+}
@@ -0,0 +1,87 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.After;
+import org.junit.Test;
+import pro.dracarys.CommonLib.particles.EffectRegistry.ActiveEffect;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EffectRegistryTest {
+    private final World world = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class}, (proxy, method, args) -> null);
+    private final List<ActiveEffect> attached = new ArrayList<>();
+
+    @After
+    public void detach() {
+        for (ActiveEffect effect : attached) {
+            effect.cancel();
+        }
+        EffectRegistry.getInstance().render();
+    }
+
+    @Test
+    public void distantEffectsDoNotShareRecipients() {
+        attach(new Location(world, 0, 64, 0));
+        attach(new Location(world, 2000, 64, 2000));
+        Player nearFirst = player(new Location(world, 5, 64, 5));
+        Player nearSecond = player(new Location(world, 2005, 64, 1995));
+        List<Player> online = Arrays.asList(nearFirst, nearSecond);
+
+        Map<EffectRegistry.BatchKey, ParticleBatch> batches = EffectRegistry.getInstance().render();
+        assertEquals(2, batches.size());
+        List<List<Player>> recipients = new ArrayList<>();
+        for (ParticleBatch batch : batches.values()) {
+            assertEquals(1, batch.size());
+            recipients.add(batch.getRecipients(online, 32));
+        }
+        assertEquals(1, recipients.get(0).size());
+        assertEquals(1, recipients.get(1).size());
+        assertTrue(recipients.get(0).get(0) != recipients.get(1).get(0));
+    }
+
+    @Test
+    public void nearbyEffectsShareBatch() {
+        attach(new Location(world, 1, 64, 1));
+        attach(new Location(world, 10, 70, 12));
+
+        Map<EffectRegistry.BatchKey, ParticleBatch> batches = EffectRegistry.getInstance().render();
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.values().iterator().next().size());
+    }
+
+    private void attach(Location location) {
+        ParticleTemplate template = new ParticleTemplate(ParticleEffect.EXPLOSION_NORMAL, new ParticlePacket(ParticleEffect.EXPLOSION_NORMAL, 0, 0, 0, 0, 1, false, null));
+        ParticleRenderer renderer = (batch, origin, frame) -> batch.add(template, origin.getX(), origin.getY(), origin.getZ());
+        attached.add(EffectRegistry.getInstance().attach(location, renderer, 1, -1, 32));
+    }
+
+    private Player player(Location location) {
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getLocation":
+                    Location target = (Location) args[0];
+                    target.setWorld(location.getWorld());
+                    target.setX(location.getX());
+                    target.setY(location.getY());
+                    target.setZ(location.getZ());
+                    return target;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        });
+    }
+}
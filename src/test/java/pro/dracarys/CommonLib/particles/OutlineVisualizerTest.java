@@ -0,0 +1,104 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.Test;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OutlineVisualizerTest {
+    // A refresh period this long refreshes a single point per tick
+    private static final int REFRESH_TICKS = 1_000_000;
+    private final World world = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class}, (proxy, method, args) -> null);
+    private final List<String> spawned = new ArrayList<>();
+    private final Player player = player();
+    private final OutlineVisualizer visualizer = new OutlineVisualizer(new ParticleTemplate(ParticleEffect.EXPLOSION_NORMAL, new ParticlePacket(ParticleEffect.EXPLOSION_NORMAL, 0, 0, 0, 0, 1, false, null)), 1, REFRESH_TICKS);
+
+    @Test
+    public void firstTickSendsWholeOutline() {
+        visualizer.show(player, new Location(world, 0, 64, 0), new Location(world, 2, 66, 2));
+        visualizer.tick();
+        Set<String> outline = outline(0, 64, 0, 2, 66, 2);
+        assertEquals(outline.size() + 1, spawned.size());
+        assertTrue(outline.containsAll(spawned));
+    }
+
+    @Test
+    public void unchangedBoundsOnlyRefresh() {
+        visualizer.show(player, new Location(world, 0, 64, 0), new Location(world, 2, 66, 2));
+        visualizer.tick();
+        spawned.clear();
+        visualizer.show(player, new Location(world, 2, 66, 2), new Location(world, 0, 64, 0));
+        visualizer.tick();
+        assertEquals(1, spawned.size());
+    }
+
+    @Test
+    public void changedBoundsSendOnlyNewPoints() {
+        visualizer.show(player, new Location(world, 0, 64, 0), new Location(world, 2, 66, 2));
+        visualizer.tick();
+        spawned.clear();
+        visualizer.show(player, new Location(world, 0, 64, 0), new Location(world, 4, 66, 2));
+        visualizer.tick();
+
+        Set<String> added = outline(0, 64, 0, 4, 66, 2);
+        added.removeAll(outline(0, 64, 0, 2, 66, 2));
+        // Every new point is sent, plus the single point of the refresh slice
+        assertEquals(added.size() + 1, spawned.size());
+        assertTrue(spawned.containsAll(added));
+        assertTrue(outline(0, 64, 0, 4, 66, 2).containsAll(spawned));
+    }
+
+    private static Set<String> outline(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        PointBuffer points = Shapes.generateCubeEdges(maxX - minX, maxY - minY, maxZ - minZ, 1).translate(minX, minY, minZ);
+        Set<String> keys = new HashSet<>();
+        for (int index = 0; index < points.size(); index++) {
+            keys.add(key(points.getX(index), points.getY(index), points.getZ(index)));
+        }
+        return keys;
+    }
+
+    private static String key(double x, double y, double z) {
+        return x + "," + y + "," + z;
+    }
+
+    private Player player() {
+        UUID uuid = UUID.randomUUID();
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "isOnline":
+                    return true;
+                case "getWorld":
+                    return world;
+                case "getLocation":
+                    Location location = (Location) args[0];
+                    location.setWorld(world);
+                    location.setX(1);
+                    location.setY(65);
+                    location.setZ(1);
+                    return location;
+                case "spawnParticle":
+                    spawned.add(key((Double) args[1], (Double) args[2], (Double) args[3]));
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+import pro.dracarys.CommonLib.particles.PacketRateLimiter.Overflow;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PacketRateLimiterTest {
+    private final PacketRateLimiter limiter = PacketRateLimiter.getInstance();
+    private final Player player = player();
+    private ParticlePacket packet;
+
+    @Before
+    public void enable() {
+        packet = new ParticlePacket(ParticleEffect.EXPLOSION_NORMAL, 0, 0, 0, 0, 1, false, null);
+        limiter.setEnabled(true);
+        limiter.setRate(0.001);
+        limiter.setBurst(1);
+        limiter.setMaxPending(2);
+        limiter.resetMetrics();
+    }
+
+    @After
+    public void disable() {
+        limiter.setEnabled(false);
+        limiter.setRate(400);
+        limiter.setBurst(200);
+        limiter.setMaxPending(256);
+        limiter.setOverflow(Overflow.DROP);
+    }
+
+    @Test
+    public void coalescesOnlyPacketsAtTheSamePosition() {
+        limiter.setOverflow(Overflow.COALESCE);
+        assertTrue(limiter.tryAcquire(player, packet, new Location(null, 0, 64, 0), "first"));
+        assertFalse(limiter.tryAcquire(player, packet, new Location(null, 5, 64, 0), "second"));
+        assertFalse(limiter.tryAcquire(player, packet, new Location(null, 10, 64, 0), "third"));
+        assertEquals(0, limiter.getCoalesced());
+        assertFalse(limiter.tryAcquire(player, packet, new Location(null, 10.1, 64, 0), "fourth"));
+        assertEquals(1, limiter.getCoalesced());
+        assertEquals(0, limiter.getDropped());
+    }
+
+    @Test
+    public void dropsPacketWhenDeferredPacketsFillTheQueue() {
+        limiter.setOverflow(Overflow.DEFER);
+        assertTrue(limiter.tryAcquire(player, packet, new Location(null, 0, 64, 0), "first"));
+        assertFalse(limiter.tryAcquire(player, packet, new Location(null, 0, 64, 0), "second"));
+        assertFalse(limiter.tryAcquire(player, packet, new Location(null, 0, 64, 0), "third"));
+        limiter.setOverflow(Overflow.COALESCE);
+        assertFalse(limiter.tryAcquire(player, packet, new Location(null, 0, 64, 0), "fourth"));
+        assertEquals(2, limiter.getDeferred());
+        assertEquals(1, limiter.getDropped());
+        assertEquals(1, limiter.getDropped(player));
+    }
+
+    private static Player player() {
+        UUID uuid = UUID.randomUUID();
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ParticleEffectTest {
+
+    @Test
+    public void fromNameReturnsNullForNull() {
+        assertNull(ParticleEffect.fromName(null));
+    }
+
+    @Test
+    public void fromNameReturnsNullForUnknownName() {
+        assertNull(ParticleEffect.fromName("unknown"));
+    }
+
+    @Test
+    public void fromNameIgnoresCase() {
+        assertSame(ParticleEffect.FIREWORKS_SPARK, ParticleEffect.fromName("fireworksSpark"));
+        assertSame(ParticleEffect.FIREWORKS_SPARK, ParticleEffect.fromName("FIREWORKSSPARK"));
+    }
+}
@@ -0,0 +1,74 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Color;
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParticleImagesTest {
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+    // Mostly transparent pixels are left out
+    private static final int FADED_GREEN = 0x6400FF00;
+    private static final int TRANSPARENT = 0;
+
+    @After
+    public void clearCache() {
+        ParticleImages.clearCache();
+    }
+
+    @Test
+    public void groupsVisiblePixelsByColor() {
+        ParticleImage image = ParticleImages.fromImage(image(new int[][]{{RED, RED, TRANSPARENT}, {BLUE, RED, FADED_GREEN}}), 0.5);
+        assertEquals(4, image.size());
+        assertEquals(2, image.getColors());
+        assertEquals(1.5, image.getWidth(), 0);
+        assertEquals(1, image.getHeight(), 0);
+
+        ParticleBatch batch = image.addTo(new ParticleBatch(null), Transform.IDENTITY);
+        // Points are relative to the center of the image and grouped by color in the order the colors first appear
+        assertArrayEquals(new double[]{-0.5, 0.25, 0, 0, 0.25, 0, 0, -0.25, 0, -0.5, -0.25, 0}, batch.getPoints().toArray(), 0);
+        assertSame(batch.getTemplate(0), batch.getTemplate(1));
+        assertSame(batch.getTemplate(0), batch.getTemplate(2));
+        assertTrue(batch.getTemplate(0) != batch.getTemplate(3));
+    }
+
+    @Test
+    public void cachesImagesByContent() {
+        int[][] pixels = {{RED, BLUE}, {BLUE, RED}};
+        ParticleImage image = ParticleImages.fromImage(image(pixels), 0.25);
+        // Another image with the same pixels is a cache hit
+        assertSame(image, ParticleImages.fromImage(image(pixels), 0.25));
+        assertTrue(image != ParticleImages.fromImage(image(pixels), 0.5));
+        assertTrue(image != ParticleImages.fromImage(image(new int[][]{{RED, BLUE}, {BLUE, BLUE}}), 0.25));
+        ParticleImages.clearCache();
+        assertTrue(image != ParticleImages.fromImage(image(pixels), 0.25));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyTextIsRejected() {
+        ParticleImages.fromText("", new Font(Font.DIALOG, Font.PLAIN, 12), Color.RED, 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositivePixelSizeIsRejected() {
+        ParticleImages.fromImage(image(new int[][]{{RED}}), 0);
+    }
+
+    private static BufferedImage image(int[][] rows) {
+        BufferedImage image = new BufferedImage(rows[0].length, rows.length, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < rows.length; y++) {
+            for (int x = 0; x < rows[y].length; x++) {
+                image.setRGB(x, y, rows[y][x]);
+            }
+        }
+        return image;
+    }
+}
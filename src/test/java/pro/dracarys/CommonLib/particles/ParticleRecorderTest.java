@@ -0,0 +1,112 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.After;
+import org.junit.Test;
+import pro.dracarys.CommonLib.particles.ParticleEffect.ParticlePacket;
+import pro.dracarys.CommonLib.particles.ParticleReplay.Playback;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParticleRecorderTest {
+    private static final int MAX_TICKS = 10_000;
+    private final World world = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class}, (proxy, method, args) -> null);
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void delete() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void recordingRoundTrips() throws IOException {
+        ParticleTemplate first = template(0.5F, 0, 0.25F, 0.1F, 10);
+        ParticleTemplate second = template(0, 1, 0, 0, 3);
+        Location origin = new Location(world, 100.5, 64, -200.25);
+        // Large and negative deltas take several varint bytes and rely on the zigzag encoding
+        double[][] points = {{100.5, 64, -200.25}, {-30000.015625, 255, 40000}, {100.515625, 63.5, -200.25}, {0, 0, 0}};
+        File file = newFile();
+        try (ParticleRecorder recorder = new ParticleRecorder(file, origin)) {
+            recorder.record(first, new Location(world, points[0][0], points[0][1], points[0][2]));
+            recorder.record(second, new Location(world, points[1][0], points[1][1], points[1][2]));
+            // Batches are captured while the recorder is started, their templates are defined only once
+            recorder.start();
+            new ParticleBatch(world).add(first, points[2][0], points[2][1], points[2][2]).add(second, points[3][0], points[3][1], points[3][2]).send(Collections.<Player>emptyList());
+            recorder.stop();
+            assertEquals(4, recorder.getEntries());
+        }
+
+        ParticleTemplate[] expected = {first, second, first, second};
+        List<ParticleTemplate> templates = new ArrayList<>();
+        List<double[]> replayed = new ArrayList<>();
+        try (ParticleReplay replay = new ParticleReplay(file)) {
+            Playback playback = replay.open(origin, 16);
+            for (int tick = 0; tick < MAX_TICKS && !playback.isFinished(); tick++) {
+                ParticleBatch batch = playback.next();
+                PointBuffer buffer = batch.getPoints();
+                for (int index = 0; index < batch.size(); index++) {
+                    templates.add(batch.getTemplate(index));
+                    replayed.add(new double[]{buffer.getX(index), buffer.getY(index), buffer.getZ(index)});
+                }
+            }
+            assertTrue("The playback did not end", playback.isFinished());
+        }
+        assertEquals(points.length, replayed.size());
+        for (int index = 0; index < points.length; index++) {
+            ParticlePacket recorded = expected[index].newPacket(false);
+            ParticlePacket read = templates.get(index).newPacket(false);
+            assertTrue("Entry " + index + " has other attributes", recorded.canMerge(read));
+            assertEquals(recorded.getAmount(), read.getAmount());
+            assertEquals("x of entry " + index, points[index][0], replayed.get(index)[0], 0);
+            assertEquals("y of entry " + index, points[index][1], replayed.get(index)[1], 0);
+            assertEquals("z of entry " + index, points[index][2], replayed.get(index)[2], 0);
+        }
+        // Entries with equal attributes share their definition
+        assertSame(templates.get(0), templates.get(2));
+        assertSame(templates.get(1), templates.get(3));
+    }
+
+    @Test
+    public void replayedBatchesAreNotRecorded() throws IOException {
+        Location origin = new Location(world, 0, 64, 0);
+        File file = newFile();
+        try (ParticleRecorder recorder = new ParticleRecorder(file, origin)) {
+            recorder.record(template(0, 0, 0, 0, 1), origin);
+        }
+        try (ParticleReplay replay = new ParticleReplay(file); ParticleRecorder recorder = new ParticleRecorder(newFile(), origin)) {
+            recorder.start();
+            Playback playback = replay.open(origin, 16);
+            int replayed = 0;
+            for (int tick = 0; tick < MAX_TICKS && !playback.isFinished(); tick++) {
+                ParticleBatch batch = playback.next();
+                replayed += batch.size();
+                batch.send(Collections.<Player>emptyList());
+            }
+            assertEquals(1, replayed);
+            assertEquals(0, recorder.getEntries());
+        }
+    }
+
+    private static ParticleTemplate template(float offsetX, float offsetY, float offsetZ, float speed, int amount) {
+        return new ParticleTemplate(ParticleEffect.EXPLOSION_NORMAL, new ParticlePacket(ParticleEffect.EXPLOSION_NORMAL, offsetX, offsetY, offsetZ, speed, amount, false, null));
+    }
+
+    private File newFile() throws IOException {
+        File file = File.createTempFile("recording", ".particles");
+        files.add(file);
+        return file;
+    }
+}
@@ -0,0 +1,14 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class ParticlesTest {
+
+    @Test
+    public void hollowCubeWithInvertedBoundsIsEmpty() {
+        assertTrue(new Particles().getHollowCube("world", 5, 0, 0, 0, 5, 5).isEmpty());
+        assertTrue(new Particles().getHollowCube("world", 0, 0, 5, 5, 5, 0).isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReflectionUtilsTest {
+    private static final int WARMUP = 20_000;
+    private static final int LOOKUPS = 100_000;
+
+    @Test
+    public void lookupReleasesArgumentsAfterCacheHit() throws Exception {
+        Target target = new Target();
+        // The first call fills the cache, the second one is a cache hit
+        ReflectionUtils.invokeMethod(target, Target.class, "accept", new Object());
+        ReflectionUtils.invokeMethod(target, Target.class, "accept", new Object());
+        Object key = lookupKey();
+        for (String name : new String[]{"clazz", "name", "types", "arguments"}) {
+            assertNull(name + " is still referenced", field(key.getClass(), name).get(key));
+        }
+    }
+
+    @Test
+    public void cachedLookupDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        // The signature is created once, so only the lookup itself is measured
+        Class<?>[] signature = {String.class};
+        Method expected = Thread.class.getMethod("setName", String.class);
+        Method method = null;
+        for (int index = 0; index < WARMUP; index++) {
+            method = ReflectionUtils.getMethod(Thread.class, "setName", signature);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int index = 0; index < LOOKUPS; index++) {
+            method = ReflectionUtils.getMethod(Thread.class, "setName", signature);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertEquals(expected, method);
+        // A single allocation per lookup would already add up to more than a megabyte
+        assertTrue("The lookups allocated " + allocated + " bytes", allocated < LOOKUPS);
+    }
+
+    @Test
+    public void varargsMembersTakeTheirArrayAsIs() throws Exception {
+        String[] parts = {"a", "b"};
+        assertEquals("a,b", ReflectionUtils.invokeMethod(new Target(), Target.class, "join", (Object) parts));
+        assertEquals("a,b", ((Target) ReflectionUtils.instantiateObject(Target.class, (Object) parts)).joined);
+    }
+
+    private static Object lookupKey() throws ReflectiveOperationException {
+        return ((ThreadLocal<?>) field(ReflectionUtils.class, "LOOKUP_KEY").get(null)).get();
+    }
+
+    private static Field field(Class<?> clazz, String name) throws NoSuchFieldException {
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException exception) {
+                // Declared by a superclass
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+
+    public static final class Target {
+        private final String joined;
+
+        public Target(String... parts) {
+            joined = String.join(",", parts);
+        }
+
+        public void accept(Object value) {
+        }
+
+        public String join(String... parts) {
+            return String.join(",", parts);
+        }
+    }
+}
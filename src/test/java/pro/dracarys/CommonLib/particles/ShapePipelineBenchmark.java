@@ -0,0 +1,81 @@
+package pro.dracarys.CommonLib.particles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link ShapePipeline#translate(PointBuffer, double, double, double)} at increasing parallelism
+ * <p>
+ * The same workload runs serially and on pools with a parallelism of 1, 2, 4 and so on up to the available processors.
+ * This is not a unit test and is not run by the build, start it by hand on an otherwise idle machine:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=pro.dracarys.CommonLib.particles.ShapePipelineBenchmark
+ * </pre>
+ * Optional arguments are the amounts of points to translate, they default to the parallel threshold and 64 times of it
+ */
+public final class ShapePipelineBenchmark {
+    private static final long WARMUP = TimeUnit.SECONDS.toNanos(2);
+    private static final long MEASUREMENT = TimeUnit.SECONDS.toNanos(5);
+    private static volatile PointBuffer sink;
+
+    // Prevent accidental construction
+    private ShapePipelineBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = {ShapePipeline.PARALLEL_THRESHOLD, ShapePipeline.PARALLEL_THRESHOLD * 64};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int index = 0; index < args.length; index++) {
+                sizes[index] = Integer.parseInt(args[index]);
+            }
+        }
+        List<Integer> parallelisms = new ArrayList<>();
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism < processors; parallelism <<= 1) {
+            parallelisms.add(parallelism);
+        }
+        parallelisms.add(processors);
+        System.out.println("Translating on " + processors + " processors");
+        for (int size : sizes) {
+            PointBuffer buffer = new PointBuffer(new double[size * 3], size);
+            report(size, "serial", run(() -> sink = buffer.translate(1, 2, 3)));
+            for (int parallelism : parallelisms) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    report(size, "parallelism " + parallelism, run(() -> sink = ShapePipeline.translate(pool, buffer, 1, 2, 3)));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of runs per second after a warmup
+     *
+     * @param workload Workload to measure
+     * @return The throughput of the workload
+     */
+    private static double run(Runnable workload) {
+        for (long end = System.nanoTime() + WARMUP; System.nanoTime() < end; ) {
+            workload.run();
+        }
+        long runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            workload.run();
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASUREMENT);
+        return runs * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    private static void report(int size, String mode, double throughput) {
+        System.out.println(String.format(Locale.ROOT, "%9d points, %-16s %12.1f ops/s %14.0f points/s", size, mode, throughput, throughput * size));
+    }
+}
@@ -0,0 +1,98 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.bukkit.Server;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShapePipelineTest {
+    private final Plugin plugin = plugin();
+
+    @After
+    public void shutdown() {
+        ShapePipeline.shutdown();
+    }
+
+    @Test
+    public void generatesShapesInOrder() throws Exception {
+        List<Supplier<PointBuffer>> shapes = Arrays.asList(ShapePipeline.cubeEdges(0, 0, 0, 1, 1, 1, 0.5), ShapePipeline.cubeEdges(10, 0, 0, 12, 1, 1, 0.5));
+        List<PointBuffer> generated = ShapePipeline.generate(plugin, shapes, result -> {
+        }).get(5, TimeUnit.SECONDS);
+        assertEquals(2, generated.size());
+        assertEquals(0, generated.get(0).getX(0), 0);
+        assertEquals(10, generated.get(1).getX(0), 0);
+    }
+
+    @Test
+    public void failingShapeCompletesExceptionally() throws Exception {
+        final IllegalStateException thrown = new IllegalStateException("Test failure");
+        final AtomicBoolean called = new AtomicBoolean();
+        List<Supplier<PointBuffer>> shapes = Arrays.asList(ShapePipeline.cubeEdges(0, 0, 0, 1, 1, 1, 0.5), () -> {
+            throw thrown;
+        });
+        CompletableFuture<List<PointBuffer>> future = ShapePipeline.generate(plugin, shapes, result -> called.set(true));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("The future completed normally");
+        } catch (ExecutionException exception) {
+            // Fork-join may rethrow a copy of an exception raised on another worker
+            assertTrue(exception.getCause() instanceof IllegalStateException);
+            assertEquals(thrown.getMessage(), exception.getCause().getMessage());
+        }
+        assertFalse(called.get());
+    }
+
+    @Test
+    public void parallelTranslateMatchesSerial() {
+        int size = ShapePipeline.PARALLEL_THRESHOLD * 4 + 1;
+        double[] points = new double[size * 3];
+        for (int index = 0; index < points.length; index++) {
+            points[index] = index * 0.25;
+        }
+        PointBuffer buffer = new PointBuffer(points, size);
+        PointBuffer expected = buffer.translate(1, 2, 3);
+        PointBuffer parallel = ShapePipeline.translate(buffer, 1, 2, 3);
+        assertEquals(size, parallel.size());
+        for (int index = 0; index < size; index++) {
+            assertEquals(expected.getX(index), parallel.getX(index), 0);
+            assertEquals(expected.getY(index), parallel.getY(index), 0);
+            assertEquals(expected.getZ(index), parallel.getZ(index), 0);
+        }
+    }
+
+    private static Plugin plugin() {
+        // Runs main thread tasks right away on the calling thread
+        final BukkitScheduler scheduler = (BukkitScheduler) Proxy.newProxyInstance(BukkitScheduler.class.getClassLoader(), new Class<?>[]{BukkitScheduler.class}, (proxy, method, args) -> {
+            if (method.getName().equals("runTask")) {
+                ((Runnable) args[1]).run();
+            }
+            return null;
+        });
+        final Server server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[]{Server.class}, (proxy, method, args) -> method.getName().equals("getScheduler") ? scheduler : null);
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isEnabled":
+                    return true;
+                case "getServer":
+                    return server;
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package pro.dracarys.CommonLib.particles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class TransformTest {
+    private static final double DELTA = 1e-9;
+    private static final double HALF_PI = Math.PI / 2;
+
+    @Test
+    public void thenAppliesThisTransformFirst() {
+        Transform translation = Transform.translation(1, 0, 0);
+        Transform scaling = Transform.scaling(2, 2, 2);
+        // (1, 1, 1) moved to (2, 1, 1) and then doubled
+        assertArrayEquals(new double[]{4, 2, 2}, apply(translation.then(scaling), 1, 1, 1), DELTA);
+        // (1, 1, 1) doubled to (2, 2, 2) and then moved
+        assertArrayEquals(new double[]{3, 2, 2}, apply(scaling.then(translation), 1, 1, 1), DELTA);
+    }
+
+    @Test
+    public void chainedStepsMatchThen() {
+        Transform chained = Transform.IDENTITY.scale(3).translate(0, 1, 0).rotate(Quaternion.fromAxisAngle(0, 0, 1, HALF_PI));
+        // (1, 0, 0) scaled to (3, 0, 0), moved to (3, 1, 0) and turned a quarter around the z-axis
+        assertArrayEquals(new double[]{-1, 3, 0}, apply(chained, 1, 0, 0), DELTA);
+    }
+
+    @Test
+    public void rotatesCounterClockwiseAroundAxis() {
+        assertArrayEquals(new double[]{0, 1, 0}, apply(Transform.rotation(0, 0, 1, HALF_PI), 1, 0, 0), DELTA);
+        assertArrayEquals(new double[]{0, 0, -1}, apply(Transform.rotation(0, 1, 0, HALF_PI), 1, 0, 0), DELTA);
+        assertArrayEquals(new double[]{0, 0, 1}, apply(Transform.rotation(1, 0, 0, HALF_PI), 0, 1, 0), DELTA);
+        // The axis does not need to be normalized
+        assertArrayEquals(new double[]{-1, 0, 0}, apply(Transform.rotation(0, 5, 0, Math.PI), 1, 0, 0), DELTA);
+    }
+
+    @Test
+    public void multiplyAppliesOtherRotationFirst() {
+        Quaternion aroundY = Quaternion.fromAxisAngle(0, 1, 0, HALF_PI);
+        Quaternion aroundZ = Quaternion.fromAxisAngle(0, 0, 1, HALF_PI);
+        // (0, 0, 1) turned to (1, 0, 0) around the y-axis and then to (0, 1, 0) around the z-axis
+        assertArrayEquals(new double[]{0, 1, 0}, apply(Transform.rotation(aroundZ.multiply(aroundY)), 0, 0, 1), DELTA);
+        assertArrayEquals(new double[]{0, 1, 0}, apply(Transform.rotation(aroundY).then(Transform.rotation(aroundZ)), 0, 0, 1), DELTA);
+        // The z-axis is not moved by the rotation around it, so only the rotation around the y-axis remains
+        assertArrayEquals(new double[]{1, 0, 0}, apply(Transform.rotation(aroundY.multiply(aroundZ)), 0, 0, 1), DELTA);
+    }
+
+    @Test
+    public void inverseRotatesBack() {
+        Quaternion rotation = Quaternion.fromEuler(0.3, -1.1, 2.5);
+        double[] point = apply(Transform.rotation(rotation).then(Transform.rotation(rotation.inverse())), 1, 2, 3);
+        assertArrayEquals(new double[]{1, 2, 3}, point, DELTA);
+    }
+
+    @Test
+    public void slerpHalfwayRotatesHalfTheAngle() {
+        Quaternion halfway = Quaternion.IDENTITY.slerp(Quaternion.fromAxisAngle(0, 0, 1, HALF_PI), 0.5);
+        double half = Math.sqrt(0.5);
+        assertArrayEquals(new double[]{half, half, 0}, apply(Transform.rotation(halfway), 1, 0, 0), DELTA);
+    }
+
+    @Test
+    public void appliesToPackedCoordinatesAtOffsets() {
+        double[] source = {9, 9, 9, 1, 2, 3, 4, 5, 6};
+        double[] target = new double[7];
+        Transform.translation(10, 20, 30).apply(source, 3, target, 1, 2);
+        assertArrayEquals(new double[]{0, 11, 22, 33, 14, 25, 36}, target, 0);
+        // In place with the same array and offset
+        Transform.scaling(2, 3, 4).apply(source, 3, source, 3, 2);
+        assertArrayEquals(new double[]{9, 9, 9, 2, 6, 12, 8, 15, 24}, source, 0);
+    }
+
+    private static double[] apply(Transform transform, double x, double y, double z) {
+        double[] point = {x, y, z};
+        transform.apply(point, 0, point, 0, 1);
+        return point;
+    }
+}